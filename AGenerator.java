@@ -0,0 +1,71 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent the helpers shared by the board generators
+abstract class AGenerator implements BoardGenerator {
+  // how much more likely a random walk is to take a wire the bias favors
+  static final int FAVORED_WEIGHT = 4;
+
+  // to get which wires go against the given bias, 1 for horizontal
+  // wires and 2 for vertical ones
+  static int against(String bias) {
+    if (bias.equals("horizontal")) {
+      return 1;
+    }
+    else if (bias.equals("vertical")) {
+      return 2;
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // does the given wire go against the bias described by the given bits?
+  static boolean isAgainst(int wire, int against) {
+    if (wire == BoardStore.TOP || wire == BoardStore.BOTTOM) {
+      return (against & 2) != 0;
+    }
+    else {
+      return (against & 1) != 0;
+    }
+  }
+
+  // to pick one of the given wires at random, favoring the ones that
+  // don't go against the bias
+  static int pickWire(Random rand, int wires, int against) {
+    int total = 0;
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((wires & wire) != 0) {
+        total += AGenerator.isAgainst(wire, against) ? 1 : FAVORED_WEIGHT;
+      }
+    }
+    int pick = rand.nextInt(total);
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((wires & wire) != 0) {
+        pick -= AGenerator.isAgainst(wire, against) ? 1 : FAVORED_WEIGHT;
+        if (pick < 0) {
+          return wire;
+        }
+      }
+    }
+    throw new IllegalArgumentException("No wires to pick from");
+  }
+
+  // to get the wires of the given tile that lead to a neighbor on the board
+  static int onBoard(BoardStore store, int tile) {
+    int wires = 0;
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if (store.inBounds(tile, wire)) {
+        wires |= wire;
+      }
+    }
+    return wires;
+  }
+
+  // to wire the given tile to its neighbor in the direction of the given wire
+  static void join(BoardStore store, int tile, int wire) {
+    store.connect(tile, wire);
+    store.connect(store.neighbor(tile, wire), BoardStore.opposite(wire));
+  }
+}
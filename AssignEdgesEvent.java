@@ -0,0 +1,16 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.AssignEdges")
+@Label("Assign Edges")
+@Description("Giving every edge a random weight and sorting them, for kruskal")
+class AssignEdgesEvent extends BoardEvent {
+  @Label("Edges")
+  int edges;
+  @Label("Reused")
+  @Description("Whether the edges of the last board were given new weights in place")
+  boolean reused;
+}
@@ -0,0 +1,99 @@
+package lightemall;
+
+// to represent a breadth-first search over the tiles of a board that
+// allocates nothing once made: tiles are marked in a bitset as they are
+// queued, so each one is queued at most once per search
+class BfsKernel {
+  // the tiles queued up, as a ring whose size is a power of two
+  int[] queue;
+  // for wrapping positions around the ring
+  int mask;
+  // the position of the next tile to take, and of the next free spot
+  int head;
+  int tail;
+  // one bit per tile, set once the tile has been queued
+  long[] visited;
+  // how many tiles have been queued since the last reset
+  int marked;
+
+  BfsKernel(int size) {
+    int capacity = 1;
+    while (capacity < size) {
+      capacity *= 2;
+    }
+    this.queue = new int[capacity];
+    this.mask = capacity - 1;
+    this.head = 0;
+    this.tail = 0;
+    this.visited = new long[(size + 63) / 64];
+    this.marked = 0;
+  }
+
+  // to start a new search, forgetting the tiles marked by the last one
+  void reset() {
+    // every marked tile was queued once, so they are the
+    // last marked spots before the tail
+    for (int k = 0; k < this.marked; k++) {
+      int tile = this.markedAt(k);
+      this.visited[tile >> 6] &= ~(1L << tile);
+    }
+    this.head = this.tail;
+    this.marked = 0;
+  }
+
+  // has the given tile been queued in this search?
+  boolean isVisited(int tile) {
+    return (this.visited[tile >> 6] & (1L << tile)) != 0;
+  }
+
+  // to queue up and mark the given tile, unless it has been already,
+  // returns whether it was queued
+  boolean offer(int tile) {
+    if (this.isVisited(tile)) {
+      return false;
+    }
+    this.visited[tile >> 6] |= 1L << tile;
+    this.queue[this.tail] = tile;
+    this.tail = (this.tail + 1) & this.mask;
+    this.marked += 1;
+    return true;
+  }
+
+  // are there no more tiles queued up?
+  boolean isEmpty() {
+    return this.head == this.tail;
+  }
+
+  // to take the next queued tile
+  int poll() {
+    int tile = this.queue[this.head];
+    this.head = (this.head + 1) & this.mask;
+    return tile;
+  }
+
+  // to look at the next queued tile without taking it
+  int peek() {
+    return this.queue[this.head];
+  }
+
+  // to get the given tile marked in this search, in the order they were queued
+  int markedAt(int k) {
+    return this.queue[(this.tail - this.marked + k) & this.mask];
+  }
+
+  // to mark every tile wired to the tile at the given index on the given board,
+  // returns how many tiles were marked
+  int reach(BoardStore store, int start) {
+    this.reset();
+    this.offer(start);
+    while (!this.isEmpty()) {
+      int next = this.poll();
+      for (int wire : PowerEngine.DIRECTIONS) {
+        if (store.connected(next, wire)) {
+          this.offer(store.neighbor(next, wire));
+        }
+      }
+    }
+    return this.marked;
+  }
+}
@@ -0,0 +1,31 @@
+package lightemall;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+// the Java Flight Recorder events of the game, so a recording shows where
+// boards are made, powered and drawn instead of anonymous javalib frames;
+// each is only filled in when it will be kept, and costs next to nothing
+// when nothing is recording:
+//   java -XX:StartFlightRecording=filename=game.jfr -cp javalib.jar:tester.jar:. ...
+//   jfr print --events lightemall.* game.jfr
+
+// to represent an event on a board of some size and bias, so recordings can
+// be filtered by how the board was set up
+@Category("LightEmAll")
+abstract class BoardEvent extends Event {
+  @Label("Width")
+  int width;
+  @Label("Height")
+  int height;
+  @Label("Bias")
+  String bias;
+
+  // to fill in the size and bias of the given board
+  void board(int width, int height, String bias) {
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+  }
+}
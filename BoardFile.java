@@ -0,0 +1,112 @@
+package lightemall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// to read boards from a board file, mapping each one into memory only when it
+// is asked for, so even a huge board opens without reading the whole file
+//
+// a board file holds any number of boards, all numbers big-endian:
+//   int MAGIC, int VERSION, int how many boards, then a long for each board
+//   giving where it starts in the file
+// and each board is:
+//   int width, int height, long seed, int station row, int station column,
+//   short length of the bias, the bias in UTF-8, then the wires of every tile
+//   as they are now and then as they are once solved, each in row-major order
+//   two tiles to a byte, the first in the high half
+class BoardFile implements AutoCloseable {
+  // the first bytes of every board file, "LEA1"
+  static final int MAGIC = 0x4C454131;
+  static final int VERSION = 1;
+  // the bytes before the index: magic, version and how many boards
+  static final int HEADER = 12;
+
+  // the open file
+  FileChannel channel;
+  // where each board starts in the file
+  ByteBuffer index;
+  // how many boards are in the file
+  int count;
+
+  BoardFile(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      this.count = BoardFile.checkHeader(
+          this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER), this.channel.size());
+      this.index = this.channel.map(FileChannel.MapMode.READ_ONLY, HEADER, 8L * this.count);
+    }
+    catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  // to check the given header is a board file this can read, and that the
+  // index of a file of the given bytes fits in it,
+  // returns how many boards the file holds
+  static int checkHeader(ByteBuffer header, long size) throws IOException {
+    if (header.getInt(0) != MAGIC) {
+      throw new IOException("Not a board file");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException("Unsupported board file version " + header.getInt(4));
+    }
+    int count = header.getInt(8);
+    if (count < 0 || HEADER + 8L * count > size) {
+      throw new IOException("Board file can't hold " + count + " boards");
+    }
+    return count;
+  }
+
+  // to get the board with the given index in the file,
+  // read straight from the file's memory
+  BoardRecord get(int k) throws IOException {
+    if (k < 0 || k >= this.count) {
+      throw new IndexOutOfBoundsException("No board " + k + " in a file of " + this.count);
+    }
+    long start = this.index.getLong(k * 8);
+    long end = k + 1 < this.count ? this.index.getLong(k * 8 + 8) : this.channel.size();
+    if (start < HEADER || end < start || end > this.channel.size()
+        || end - start > Integer.MAX_VALUE) {
+      throw new IOException("Board " + k + " is not where the index says");
+    }
+    MappedByteBuffer board = this.channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    return BoardRecord.read(board);
+  }
+
+  // to close the file, boards already gotten can still be read
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  // to write the given boards to a new board file at the given path
+  static void write(Path path, List<BoardRecord> boards) throws IOException {
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER + 8 * boards.size());
+      header.putInt(MAGIC).putInt(VERSION).putInt(boards.size());
+      long offset = header.capacity();
+      for (BoardRecord board : boards) {
+        header.putLong(offset);
+        offset += board.bytes();
+      }
+      header.flip();
+      BoardFile.writeFully(out, header);
+      for (BoardRecord board : boards) {
+        board.write(out);
+      }
+    }
+  }
+
+  // to write all of the given buffer to the given file
+  static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent a way of wiring up the tiles of a board as a spanning tree
+interface BoardGenerator {
+  // to wire up the tiles of the given board, which have no wires yet, as a
+  // spanning tree using the given randomness and bias, where a "horizontal"
+  // bias favors vertical wires and a "vertical" bias favors horizontal ones
+  void generate(BoardStore store, Random rand, String bias);
+
+  // to make a new generator of the same kind, with nothing kept from this one,
+  // for boards made somewhere else
+  BoardGenerator fresh();
+}
@@ -0,0 +1,141 @@
+package lightemall;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// to make the next boards of a game on a thread of its own while the game is
+// played, so starting over only has to copy a finished board in: boards wait
+// packed in a queue that holds the given number ahead, fewer if they would
+// take more than the given number of bytes, and the thread waits when it is
+// full
+//
+// the bytes only count the boards waiting in the queue: on top of them the
+// thread keeps the tiles it makes boards in, a byte per tile and another for
+// the solved wires, its generator's own arrays, and the finished board it is
+// waiting to put in a full queue
+//
+// each board is made from a seed of its own, drawn from the given seed, the
+// same way a game starts over, but with nothing powered or drawn, so with a
+// BoruvkaGenerator every board is the same as LightEngine.seeded gives for its
+// seed
+class BoardPrefetcher implements AutoCloseable {
+  // the most bytes the waiting boards take by default
+  static final long MAX_BYTES = 64L << 20;
+  // how long taking a board waits before checking the thread is still going,
+  // and the longest closing waits for the thread to stop
+  static final long POLL_MILLIS = 100;
+
+  // the size and bias of every board
+  int width;
+  int height;
+  String bias;
+  // where the seed of every board comes from
+  Random seeds;
+  // makes the generator of the game the boards are made in
+  Supplier<BoardGenerator> generators;
+  // the finished boards, in the order they were made
+  BlockingQueue<BoardRecord> boards;
+  // what stopped the thread, if anything did, errors like running out of
+  // memory included
+  volatile Throwable failure;
+  // the thread that makes the boards
+  Thread maker;
+
+  BoardPrefetcher(int width, int height, String bias, long seed,
+      Supplier<BoardGenerator> generators, int ahead, long maxBytes) {
+    if (ahead < 1) {
+      throw new IllegalArgumentException("Boards ahead must be at least 1");
+    }
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+    this.seeds = new Random(seed);
+    this.generators = generators;
+    this.boards = new ArrayBlockingQueue<BoardRecord>(
+        BoardPrefetcher.capacity(ahead, maxBytes, width * height));
+    this.maker = new Thread(this::makeBoards, "board prefetch");
+    this.maker.setDaemon(true);
+    this.maker.start();
+  }
+
+  // how many boards of the given number of tiles can wait, the given number
+  // ahead but no more than fit in the given bytes, and always at least one
+  static int capacity(int ahead, long maxBytes, int tiles) {
+    long bytes = 2L * BoardRecord.packedSize(tiles);
+    return (int) Math.max(1, Math.min(ahead, maxBytes / bytes));
+  }
+
+  // to make boards until closed, waiting whenever the queue is full, every
+  // one in the same tiles
+  void makeBoards() {
+    try {
+      BoardGenerator generator = this.generators.get();
+      BoardStore store = new BoardStore(this.width, this.height);
+      byte[] solved = new byte[store.size()];
+      Random rand = new Random();
+      while (true) {
+        long seed = this.seeds.nextLong();
+        rand.setSeed(seed);
+        store.clear();
+        generator.generate(store, rand, this.bias);
+        for (int i = 0; i < solved.length; i++) {
+          solved[i] = (byte) store.wires(i);
+        }
+        LightEngine.scramble(store, rand);
+        // the station starts at the top left
+        this.boards.put(new BoardRecord(this.width, this.height, this.bias, seed, 0, 0,
+            ByteBuffer.wrap(BoardRecord.pack(store)), ByteBuffer.wrap(BoardRecord.pack(solved))));
+      }
+    }
+    catch (InterruptedException e) {
+      return;
+    }
+    catch (Throwable e) {
+      this.failure = e;
+    }
+  }
+
+  // to take the next finished board, null if none is finished yet, throwing
+  // whatever stopped the thread if something did and no boards are left
+  BoardRecord poll() {
+    BoardRecord board = this.boards.poll();
+    if (board == null && this.failure != null) {
+      throw new IllegalStateException("The next board couldn't be made", this.failure);
+    }
+    return board;
+  }
+
+  // to take the next board, waiting for it to be finished
+  BoardRecord take() throws InterruptedException {
+    while (true) {
+      BoardRecord board = this.boards.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if (board != null) {
+        return board;
+      }
+      if (this.failure != null) {
+        throw new IllegalStateException("The next board couldn't be made", this.failure);
+      }
+      if (!this.maker.isAlive()) {
+        throw new IllegalStateException("No more boards are being made");
+      }
+    }
+  }
+
+  // to stop making boards, the ones finished can still be taken; a board
+  // part way through being made isn't waited for past POLL_MILLIS, so closing
+  // from the event thread never holds up a frame for long, and the thread
+  // stops on its own once the board is made
+  public void close() {
+    this.maker.interrupt();
+    try {
+      this.maker.join(POLL_MILLIS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
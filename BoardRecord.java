@@ -0,0 +1,170 @@
+package lightemall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+// to represent one board of a board file: its size, bias, seed and station,
+// and the wires of every tile now and once solved, kept packed two tiles to a
+// byte either in memory or straight in the file's mapped memory
+class BoardRecord {
+  int width;
+  int height;
+  String bias;
+  // the seed the board was made from
+  long seed;
+  // where the power station is
+  int stationRow;
+  int stationCol;
+  // the packed wires of every tile now, and once the board is solved
+  ByteBuffer current;
+  ByteBuffer solved;
+
+  BoardRecord(int width, int height, String bias, long seed, int stationRow, int stationCol,
+      ByteBuffer current, ByteBuffer solved) {
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+    this.seed = seed;
+    this.stationRow = stationRow;
+    this.stationCol = stationCol;
+    this.current = current;
+    this.solved = solved;
+  }
+
+  // a board of the given puzzle, with the station at the top left
+  BoardRecord(Puzzle puzzle) {
+    this(puzzle.width, puzzle.height, puzzle.bias, puzzle.seed, 0, 0,
+        ByteBuffer.wrap(BoardRecord.pack(puzzle.wires)),
+        ByteBuffer.wrap(BoardRecord.pack(puzzle.solved())));
+  }
+
+  // a board of the given game as it is now, made from the given seed
+  BoardRecord(LightEngine engine, long seed) {
+    this(engine.width, engine.height, engine.bias, seed, engine.powerRow, engine.powerCol,
+        ByteBuffer.wrap(BoardRecord.pack(engine.store)),
+        ByteBuffer.wrap(BoardRecord.pack(engine.solved)));
+  }
+
+  // to read a board from the given buffer, which holds just that board,
+  // leaving its wires where they are, throwing an IOException if it is cut
+  // short or its size or station can't be played; its tiles are only checked
+  // once they are loaded into a game
+  static BoardRecord read(ByteBuffer buffer) throws IOException {
+    if (buffer.limit() < 26) {
+      throw new IOException("Board is cut short");
+    }
+    int width = buffer.getInt(0);
+    int height = buffer.getInt(4);
+    long seed = buffer.getLong(8);
+    int stationRow = buffer.getInt(16);
+    int stationCol = buffer.getInt(20);
+    int biasLength = buffer.getShort(24) & 0xFFFF;
+    if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+      throw new IOException("Board has no tiles, or too many: " + width + "x" + height);
+    }
+    int packed = BoardRecord.packedSize(width * height);
+    int start = 26 + biasLength;
+    if (start + 2L * packed > buffer.limit()) {
+      throw new IOException("Board is cut short");
+    }
+    if (stationRow < 0 || stationRow >= height || stationCol < 0 || stationCol >= width) {
+      throw new IOException("Station is off the board at " + stationRow + ", " + stationCol);
+    }
+    byte[] bias = new byte[biasLength];
+    for (int k = 0; k < biasLength; k++) {
+      bias[k] = buffer.get(26 + k);
+    }
+    BoardRecord record = new BoardRecord(width, height, new String(bias, StandardCharsets.UTF_8),
+        seed, stationRow, stationCol, BoardRecord.slice(buffer, start, packed),
+        BoardRecord.slice(buffer, start + packed, packed));
+    return record;
+  }
+
+  // to get the given number of bytes of the given buffer from the given position on
+  static ByteBuffer slice(ByteBuffer buffer, int start, int length) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(start);
+    slice.limit(start + length);
+    return slice.slice();
+  }
+
+  // how many bytes the wires of the given number of tiles take packed
+  static int packedSize(int tiles) {
+    return (tiles + 1) / 2;
+  }
+
+  // to pack the given wires two tiles to a byte, the first in the high half
+  static byte[] pack(byte[] wires) {
+    byte[] packed = new byte[BoardRecord.packedSize(wires.length)];
+    for (int i = 0; i < wires.length; i++) {
+      packed[i >> 1] |= (i & 1) == 0 ? (wires[i] & BoardStore.WIRES) << 4
+          : wires[i] & BoardStore.WIRES;
+    }
+    return packed;
+  }
+
+  // to pack the wires of the given store two tiles to a byte
+  static byte[] pack(BoardStore store) {
+    byte[] packed = new byte[BoardRecord.packedSize(store.size())];
+    for (int i = 0; i < store.size(); i++) {
+      packed[i >> 1] |= (i & 1) == 0 ? store.wires(i) << 4 : store.wires(i);
+    }
+    return packed;
+  }
+
+  // to get the wires of the tile at the given index from the given packed wires
+  static int unpack(ByteBuffer packed, int index) {
+    int pair = packed.get(index >> 1);
+    return (index & 1) == 0 ? (pair >> 4) & BoardStore.WIRES : pair & BoardStore.WIRES;
+  }
+
+  // the wires of the tile at the given index now
+  int wires(int index) {
+    return BoardRecord.unpack(this.current, index);
+  }
+
+  // the wires of the tile at the given index once the board is solved
+  int solvedWires(int index) {
+    return BoardRecord.unpack(this.solved, index);
+  }
+
+  // to get a new store with the wires the tiles have now and the station
+  BoardStore store() {
+    BoardStore store = new BoardStore(this.width, this.height);
+    for (int i = 0; i < store.size(); i++) {
+      store.setWires(i, this.wires(i));
+    }
+    store.setStation(store.index(this.stationRow, this.stationCol), true);
+    return store;
+  }
+
+  // to get the wires of every tile once the board is solved
+  byte[] solved() {
+    byte[] solved = new byte[this.width * this.height];
+    for (int i = 0; i < solved.length; i++) {
+      solved[i] = (byte) this.solvedWires(i);
+    }
+    return solved;
+  }
+
+  // how many bytes the board takes in a board file
+  long bytes() {
+    return 26L + this.bias.getBytes(StandardCharsets.UTF_8).length
+        + 2L * BoardRecord.packedSize(this.width * this.height);
+  }
+
+  // to write the board to the given file where it is now
+  void write(FileChannel out) throws IOException {
+    byte[] bias = this.bias.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer header = ByteBuffer.allocate(26 + bias.length);
+    header.putInt(this.width).putInt(this.height).putLong(this.seed)
+        .putInt(this.stationRow).putInt(this.stationCol)
+        .putShort((short) bias.length).put(bias);
+    header.flip();
+    BoardFile.writeFully(out, header);
+    BoardFile.writeFully(out, this.current.duplicate());
+    BoardFile.writeFully(out, this.solved.duplicate());
+  }
+}
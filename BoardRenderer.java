@@ -0,0 +1,62 @@
+package lightemall;
+
+import javalib.worldimages.*;
+
+// to draw a board as one image, put together from a tree of rows and columns of
+// tile images that is kept between frames, so only the branches over tiles that
+// changed since the last frame have to be put together again
+class BoardRenderer {
+  // the board being drawn
+  BoardStore store;
+  // the part of the board being drawn
+  Viewport viewport;
+  // the image of every kind of tile, at the viewport's tile size
+  TileImageCache tileImages;
+  // the branch covering the visible tiles
+  RenderNode root;
+  // how many tiles in view changed before the last image was put together,
+  // so how many were drawn again
+  int drawn;
+
+  BoardRenderer(BoardStore store, Viewport viewport) {
+    this.store = store;
+    this.viewport = viewport;
+    this.show();
+    this.store.trackChanges();
+    this.store.changed.reset();
+  }
+
+  // to start over drawing the tiles the viewport shows now
+  void show() {
+    Viewport view = this.viewport;
+    this.tileImages = view.tileImages();
+    this.root = new RenderNode(view.row0, view.row0 + view.rows, view.col0,
+        view.col0 + view.cols);
+  }
+
+  // to bring the image up to date with the board,
+  // returns how many tiles in view changed since the last time
+  int update() {
+    BfsKernel changed = this.store.changed;
+    int count = 0;
+    for (int k = 0; k < changed.marked; k++) {
+      int tile = changed.markedAt(k);
+      int row = this.store.rowOf(tile);
+      int col = this.store.colOf(tile);
+      // tiles out of view are drawn once they come into view
+      if (this.root.contains(row, col)) {
+        this.root.markDirty(row, col);
+        count += 1;
+      }
+    }
+    changed.reset();
+    this.root.draw(this.store, this.tileImages);
+    return count;
+  }
+
+  // to get the up to date image of the visible tiles
+  WorldImage image() {
+    this.drawn = this.update();
+    return this.root.image;
+  }
+}
@@ -0,0 +1,123 @@
+package lightemall;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// to find how many times to rotate each tile of a scrambled board so that
+// every wire meets a wire on the tile next to it and every tile is connected,
+// from the wires alone, so it works on boards no matter how they were made.
+// Once the tiles are narrowed down as far as the rules allow, what is left is
+// split into parts that don't depend on each other, and every thread searches
+// the parts it takes on its own copy of the board
+class BoardSolver {
+  // the board being solved
+  BoardStore store;
+  // the most solutions worth finding, each part stops once it has them
+  int limit;
+  // how many threads search parts at once
+  int threads;
+  // the parts left after narrowing down, biggest first
+  ArrayList<SolverPart> parts;
+  // whether some part can't be solved, so the board can't be either
+  volatile boolean failed;
+  // the rotations of the first solution found, filled in part by part as they
+  // are finished, null if there is none
+  int[] solution;
+
+  BoardSolver(BoardStore store) {
+    this(store, Runtime.getRuntime().availableProcessors());
+  }
+
+  // a solver searching with at most the given number of threads; with one it
+  // searches on the calling thread alone, so callers already running on
+  // every core don't each fork more work into the common pool
+  BoardSolver(BoardStore store, int threads) {
+    this.store = store;
+    this.limit = 1;
+    this.threads = threads;
+    this.parts = new ArrayList<SolverPart>();
+    this.failed = false;
+    this.solution = null;
+  }
+
+  // to find the clockwise rotations that solve the board, indexed like the
+  // store, or null if the board can't be solved
+  int[] solve() {
+    this.countSolutions(1);
+    return this.solution;
+  }
+
+  // to count the solutions of the board, stopping once there are the given
+  // number of them, so a limit of 2 tells a puzzle with one solution apart
+  int countSolutions(int limit) {
+    this.limit = limit;
+    this.failed = false;
+    this.solution = null;
+    SolverState start = new SolverState(this.store);
+    if (start.failed || !start.propagate()) {
+      return 0;
+    }
+    int[] tiles = new int[this.store.size()];
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] = i;
+    }
+    ArrayList<int[]> split = start.split(tiles, 0);
+    if (split == null) {
+      return 0;
+    }
+    this.parts = new ArrayList<SolverPart>();
+    for (int[] part : split) {
+      this.parts.add(new SolverPart(this.parts.size(), part));
+    }
+    this.solution = start.rotations();
+    // the first thread searches on the narrowed down board itself, the others
+    // on copies of it made before any of them start changing it
+    AtomicInteger next = new AtomicInteger();
+    ArrayList<SolverTask> tasks = new ArrayList<SolverTask>();
+    for (int t = 0; t < Math.min(this.threads, this.parts.size()); t++) {
+      tasks.add(new SolverTask(this, t == 0 ? start : new SolverState(start), next));
+    }
+    ForkJoinTask.invokeAll(tasks);
+    if (this.failed) {
+      this.solution = null;
+      return 0;
+    }
+    // every mix of one solution from each part solves the board
+    int count = 1;
+    for (SolverPart part : this.parts) {
+      count = Math.min(count * part.found, limit);
+    }
+    return count;
+  }
+
+  // can a search of the given part that has found the given number of
+  // solutions stop, because it has enough, another search of the part has
+  // finished, or some part has none?
+  boolean done(SolverPart part, int found) {
+    return this.failed || part.finished || found >= this.limit;
+  }
+
+  // to keep what the first search of the given part to finish found: how
+  // many solutions, and the rotations of its tiles in the first one
+  synchronized void finish(SolverPart part, int found, int[] rotations) {
+    if (!part.finished) {
+      part.found = found;
+      part.finished = true;
+      for (int k = 0; k < rotations.length && found > 0; k++) {
+        this.solution[part.tiles[k]] = rotations[k];
+      }
+      this.failed = this.failed || found == 0;
+    }
+  }
+
+  // the biggest part no search has finished yet, null if every one is finished
+  SolverPart unfinished() {
+    for (SolverPart part : this.parts) {
+      if (!part.finished) {
+        return part;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,209 @@
+package lightemall;
+
+// to represent the tiles of a board packed into one byte each, in row-major
+// order, so the tile at (row, col) is at index row * width + col
+class BoardStore {
+  // bits for the wires of a tile, in clockwise order
+  static final int TOP = 1;
+  static final int RIGHT = 2;
+  static final int BOTTOM = 4;
+  static final int LEFT = 8;
+  // all four wires
+  static final int WIRES = 15;
+  // whether the tile is powered
+  static final int POWERED = 16;
+  // whether the power station is on the tile
+  static final int STATION = 32;
+  // the wires of a tile after the given number of clockwise rotations,
+  // indexed by the number of rotations and then by the wires
+  static final int[][] ROTATIONS = BoardStore.makeRotations();
+
+  // the width and height of the board
+  int width;
+  int height;
+  // the wires, power and station bits of every tile
+  byte[] cells;
+  // the tiles changed since whoever is drawing the board last looked,
+  // null when nothing is drawing it
+  BfsKernel changed;
+
+  BoardStore(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.cells = new byte[width * height];
+    this.changed = null;
+  }
+
+  // to start remembering which tiles change
+  void trackChanges() {
+    if (this.changed == null) {
+      this.changed = new BfsKernel(this.cells.length);
+    }
+  }
+
+  // to remember that the tile at the given index changed
+  void touch(int index) {
+    if (this.changed != null) {
+      this.changed.offer(index);
+    }
+  }
+
+  // to make the rotation lookup table
+  static int[][] makeRotations() {
+    int[][] rotations = new int[4][16];
+    for (int wires = 0; wires < 16; wires++) {
+      rotations[0][wires] = wires;
+      for (int r = 1; r < 4; r++) {
+        int prev = rotations[r - 1][wires];
+        // top becomes right, right becomes bottom,
+        // bottom becomes left and left becomes top
+        rotations[r][wires] = ((prev << 1) | (prev >> 3)) & WIRES;
+      }
+    }
+    return rotations;
+  }
+
+  // to get the wire on the other side of a tile from the given wire
+  static int opposite(int wire) {
+    return ROTATIONS[2][wire];
+  }
+
+  // the number of tiles on the board
+  int size() {
+    return this.cells.length;
+  }
+
+  // to get the index of the tile at the given row and column
+  int index(int row, int col) {
+    return row * this.width + col;
+  }
+
+  // to get the row of the tile at the given index
+  int rowOf(int index) {
+    return index / this.width;
+  }
+
+  // to get the column of the tile at the given index
+  int colOf(int index) {
+    return index % this.width;
+  }
+
+  // to get the wires of the tile at the given index
+  int wires(int index) {
+    return this.cells[index] & WIRES;
+  }
+
+  // to replace the wires of the tile at the given index
+  void setWires(int index, int wires) {
+    this.cells[index] = (byte) ((this.cells[index] & ~WIRES) | wires);
+    this.touch(index);
+  }
+
+  // does the tile at the given index have the given wire?
+  boolean hasWire(int index, int wire) {
+    return (this.cells[index] & wire) != 0;
+  }
+
+  // to add the given wire to the tile at the given index
+  void connect(int index, int wire) {
+    this.cells[index] |= wire;
+    this.touch(index);
+  }
+
+  // to rotate the wires of the tile at the given index clockwise, the given number of times
+  void rotate(int index, int times) {
+    this.setWires(index, ROTATIONS[times & 3][this.wires(index)]);
+  }
+
+  // is the tile at the given index powered?
+  boolean isPowered(int index) {
+    return (this.cells[index] & POWERED) != 0;
+  }
+
+  // to power the tile at the given index on or off
+  void setPowered(int index, boolean powered) {
+    if (powered) {
+      this.cells[index] |= POWERED;
+    }
+    else {
+      this.cells[index] &= ~POWERED;
+    }
+    this.touch(index);
+  }
+
+  // is the power station on the tile at the given index?
+  boolean hasStation(int index) {
+    return (this.cells[index] & STATION) != 0;
+  }
+
+  // to place or remove the power station at the tile at the given index
+  void setStation(int index, boolean station) {
+    if (station) {
+      this.cells[index] |= STATION;
+    }
+    else {
+      this.cells[index] &= ~STATION;
+    }
+    this.touch(index);
+  }
+
+  // does the tile at the given index have a neighbor in the direction of the given wire?
+  boolean inBounds(int index, int wire) {
+    if (wire == TOP) {
+      return index >= this.width;
+    }
+    else if (wire == BOTTOM) {
+      return index < this.cells.length - this.width;
+    }
+    else if (wire == LEFT) {
+      return index % this.width > 0;
+    }
+    else {
+      return index % this.width < this.width - 1;
+    }
+  }
+
+  // to get the index of the neighbor in the direction of the given wire,
+  // assumes that neighbor is on the board
+  int neighbor(int index, int wire) {
+    if (wire == TOP) {
+      return index - this.width;
+    }
+    else if (wire == BOTTOM) {
+      return index + this.width;
+    }
+    else if (wire == LEFT) {
+      return index - 1;
+    }
+    else {
+      return index + 1;
+    }
+  }
+
+  // are the tile at the given index and its neighbor in the direction
+  // of the given wire wired to each other?
+  boolean connected(int index, int wire) {
+    return this.hasWire(index, wire) && this.inBounds(index, wire)
+        && this.hasWire(this.neighbor(index, wire), BoardStore.opposite(wire));
+  }
+
+  // to take the wires, power and station off every tile
+  void clear() {
+    for (int i = 0; i < this.cells.length; i++) {
+      if (this.cells[i] != 0) {
+        this.cells[i] = 0;
+        this.touch(i);
+      }
+    }
+  }
+
+  // to power off every tile
+  void clearPower() {
+    for (int i = 0; i < this.cells.length; i++) {
+      if ((this.cells[i] & POWERED) != 0) {
+        this.cells[i] &= ~POWERED;
+        this.touch(i);
+      }
+    }
+  }
+}
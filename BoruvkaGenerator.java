@@ -0,0 +1,211 @@
+package lightemall;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+// to wire up a board as a minimum spanning tree with Boruvka's algorithm,
+// scanning stripes of rows in parallel on the common ForkJoinPool.
+// Every edge gets a distinct weight hashed from the seed and the edge,
+// so the tree is the same no matter how the work is split up.
+// Each stripe keeps a list of its edges that still join two groups, so
+// later rounds only look at the edges between groups, not the whole board,
+// and the groups are numbered from 0 again every round, so the cheapest edges
+// of a round's groups sit together in memory.
+// Its buffers are kept for the next board of the same size.
+class BoruvkaGenerator extends AGenerator {
+  // rows scanned by each parallel task
+  static final int STRIPE = 32;
+  // no edge found for a group yet
+  static final long NO_EDGE = Long.MAX_VALUE;
+
+  // the number of each tile's group as of the last round
+  int[] groupOf;
+  // the cheapest edge leaving each group
+  AtomicLongArray cheapest;
+  // the groups of the round, joined by their cheapest edges
+  UnionFind groups;
+  // the number each group joined into gets in the next round
+  int[] renumber;
+  // the edges of every stripe that joined two groups when last scanned,
+  // the stripe starting at tile i keeping its edges from 2 * i on
+  int[] live;
+  // how many edges each stripe has in live
+  int[] liveCounts;
+
+  // to make a new BoruvkaGenerator
+  public BoardGenerator fresh() {
+    return new BoruvkaGenerator();
+  }
+
+  // to wire up the tiles of the given board from a seed drawn from the given randomness
+  public void generate(BoardStore store, Random rand, String bias) {
+    this.generate(store, rand.nextLong(), bias);
+  }
+
+  // to wire up the tiles of the given board from the given seed, preferring
+  // vertical wires for a "horizontal" bias and horizontal ones for "vertical",
+  // returns how many rounds it took
+  int generate(BoardStore store, long seed, String bias) {
+    int size = store.size();
+    int stripes = (store.height + STRIPE - 1) / STRIPE;
+    // kept from the last board of the same size
+    if (this.groupOf == null || this.groupOf.length != size) {
+      this.groupOf = new int[size];
+      this.cheapest = new AtomicLongArray(size);
+      this.groups = new UnionFind(size);
+      this.renumber = new int[size];
+      this.live = new int[2 * size];
+      this.liveCounts = new int[stripes];
+    }
+    int[] groupOf = this.groupOf;
+    AtomicLongArray cheapest = this.cheapest;
+    UnionFind groups = this.groups;
+    int[] renumber = this.renumber;
+    int[] live = this.live;
+    int[] liveCounts = this.liveCounts;
+    // every tile starts as a group of its own, numbered by its index
+    for (int i = 0; i < size; i++) {
+      groupOf[i] = i;
+    }
+    int groupCount = size;
+    int rounds = 0;
+    int against = AGenerator.against(bias);
+    // so each group's cheapest edge is found from the tile's own four sides
+    IntStream.range(0, stripes).parallel().forEach(
+        stripe -> liveCounts[stripe] = BoruvkaGenerator.list(store, cheapest, seed, against,
+            live, stripe));
+
+    while (groupCount > 1) {
+      // the first round's cheapest edges were found while listing the edges
+      if (rounds > 0) {
+        for (int g = 0; g < groupCount; g++) {
+          cheapest.set(g, NO_EDGE);
+        }
+        IntStream.range(0, stripes).parallel().forEach(
+            stripe -> liveCounts[stripe] = BoruvkaGenerator.scan(store, groupOf, cheapest,
+                seed, against, live, liveCounts[stripe], stripe));
+      }
+      rounds += 1;
+
+      // joining every group with its cheapest edge
+      groups.reset(groupCount);
+      for (int g = 0; g < groupCount; g++) {
+        long key = cheapest.get(g);
+        if (key != NO_EDGE) {
+          int edge = (int) key;
+          int from = edge >> 1;
+          int to = (edge & 1) == 0 ? from + 1 : from + store.width;
+          if (groups.union(groupOf[from], groupOf[to])) {
+            AGenerator.join(store, from, (edge & 1) == 0 ? BoardStore.RIGHT : BoardStore.BOTTOM);
+          }
+        }
+      }
+
+      // numbering the joined groups from 0 again
+      int kept = 0;
+      for (int g = 0; g < groupCount; g++) {
+        if (groups.root(g) == g) {
+          renumber[g] = kept;
+          kept += 1;
+        }
+      }
+      IntStream.range(0, stripes).parallel().forEach(
+          stripe -> BoruvkaGenerator.relabel(store, groupOf, groups, renumber, stripe));
+      groupCount = kept;
+    }
+    return rounds;
+  }
+
+  // to list the edges right of and below every tile in the given stripe, and
+  // set the cheapest edge of each of its tiles, every tile a group of its own,
+  // from the edges on its four sides, returns how many edges there are
+  static int list(BoardStore store, AtomicLongArray cheapest, long seed, int against,
+      int[] live, int stripe) {
+    int start = stripe * STRIPE * store.width;
+    int end = Math.min(store.height, (stripe + 1) * STRIPE) * store.width;
+    int count = 0;
+    for (int i = start; i < end; i++) {
+      long best = NO_EDGE;
+      if (store.inBounds(i, BoardStore.RIGHT)) {
+        live[2 * start + count] = i * 2;
+        count += 1;
+        best = Math.min(best, BoruvkaGenerator.key(seed, against, i * 2));
+      }
+      if (store.inBounds(i, BoardStore.BOTTOM)) {
+        live[2 * start + count] = i * 2 + 1;
+        count += 1;
+        best = Math.min(best, BoruvkaGenerator.key(seed, against, i * 2 + 1));
+      }
+      if (store.inBounds(i, BoardStore.LEFT)) {
+        best = Math.min(best, BoruvkaGenerator.key(seed, against, (i - 1) * 2));
+      }
+      if (store.inBounds(i, BoardStore.TOP)) {
+        best = Math.min(best, BoruvkaGenerator.key(seed, against, (i - store.width) * 2 + 1));
+      }
+      cheapest.set(i, best);
+    }
+    return count;
+  }
+
+  // to offer every listed edge of the given stripe, of which there are the
+  // given number, to the groups on both of its ends, dropping the edges
+  // whose ends are in one group by now, returns how many edges are kept
+  static int scan(BoardStore store, int[] groupOf, AtomicLongArray cheapest,
+      long seed, int against, int[] live, int count, int stripe) {
+    int start = 2 * stripe * STRIPE * store.width;
+    int kept = 0;
+    for (int k = start; k < start + count; k++) {
+      int edge = live[k];
+      int from = edge >> 1;
+      int to = (edge & 1) == 0 ? from + 1 : from + store.width;
+      if (groupOf[from] != groupOf[to]) {
+        live[start + kept] = edge;
+        kept += 1;
+        BoruvkaGenerator.offer(cheapest, groupOf[from], groupOf[to],
+            BoruvkaGenerator.key(seed, against, edge));
+      }
+    }
+    return kept;
+  }
+
+  // to give every tile in the given stripe the new number of the group its
+  // group was joined into
+  static void relabel(BoardStore store, int[] groupOf, UnionFind groups, int[] renumber,
+      int stripe) {
+    int end = Math.min(store.height, (stripe + 1) * STRIPE) * store.width;
+    for (int i = stripe * STRIPE * store.width; i < end; i++) {
+      groupOf[i] = renumber[groups.root(groupOf[i])];
+    }
+  }
+
+  // to offer the edge with the given key to the two given groups
+  static void offer(AtomicLongArray cheapest, int fromGroup, int toGroup, long key) {
+    BoruvkaGenerator.lower(cheapest, fromGroup, key);
+    BoruvkaGenerator.lower(cheapest, toGroup, key);
+  }
+
+  // to lower the cheapest edge of the given group to the given key
+  static void lower(AtomicLongArray cheapest, int group, long key) {
+    long current = cheapest.get(group);
+    while (key < current && !cheapest.compareAndSet(group, current, key)) {
+      current = cheapest.get(group);
+    }
+  }
+
+  // to get the key of an edge, where an even edge goes right from tile edge / 2
+  // and an odd one goes down, sorting by whether the wire goes against the bias,
+  // then a weight hashed from the seed, then the edge itself to break ties
+  static long key(long seed, int against, int edge) {
+    long penalty = (against >> (edge & 1)) & 1;
+    long weight = BoruvkaGenerator.mix(seed + edge * 0x9E3779B97F4A7C15L) >>> 34;
+    return (penalty << 62) | (weight << 32) | edge;
+  }
+
+  // to scramble the bits of the given number (splitmix64)
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
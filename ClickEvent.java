@@ -0,0 +1,17 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.Click")
+@Label("Click")
+@Description("Rotating a clicked tile and updating the power through it")
+class ClickEvent extends BoardEvent {
+  @Label("Tile")
+  int tile;
+  @Label("Tiles Visited")
+  int visited;
+  @Label("Tiles Powered")
+  int powered;
+}
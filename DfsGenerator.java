@@ -0,0 +1,46 @@
+package lightemall;
+
+import java.util.*;
+
+// to wire up a board with a randomized depth-first search from the top left
+// tile, on an explicit stack, which makes long winding wires
+class DfsGenerator extends AGenerator {
+
+  // to make a new DfsGenerator
+  public BoardGenerator fresh() {
+    return new DfsGenerator();
+  }
+
+  // to wire up the tiles of the given board by walking to a random unvisited
+  // neighbor, and backing up when there are none
+  public void generate(BoardStore store, Random rand, String bias) {
+    int against = AGenerator.against(bias);
+    boolean[] visited = new boolean[store.size()];
+    int[] stack = new int[store.size()];
+    int top = 0;
+    stack[top] = 0;
+    top += 1;
+    visited[0] = true;
+
+    while (top > 0) {
+      int tile = stack[top - 1];
+      int options = 0;
+      for (int wire : PowerEngine.DIRECTIONS) {
+        if (store.inBounds(tile, wire) && !visited[store.neighbor(tile, wire)]) {
+          options |= wire;
+        }
+      }
+      if (options == 0) {
+        top -= 1;
+      }
+      else {
+        int wire = AGenerator.pickWire(rand, options, against);
+        int next = store.neighbor(tile, wire);
+        AGenerator.join(store, tile, wire);
+        visited[next] = true;
+        stack[top] = next;
+        top += 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package lightemall;
+
+import java.util.*;
+
+//comparator for sorting edges
+class EdgeSorting implements Comparator<Edge> {
+
+  // compares the weight of two edges 
+  public int compare(Edge e1, Edge e2) {
+    return e1.weight - e2.weight;
+  }
+}
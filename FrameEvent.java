@@ -0,0 +1,14 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.Frame")
+@Label("Make Scene")
+@Description("Drawing a frame of the game")
+class FrameEvent extends BoardEvent {
+  @Label("Tiles Drawn")
+  @Description("How many tiles in view changed and were drawn again")
+  int drawn;
+}
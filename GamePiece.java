@@ -0,0 +1,95 @@
+package lightemall;
+
+// to represent a GamePiece, a view of one tile of a BoardStore
+class GamePiece {
+  // in logical coordinates, with the origin
+  // at the top-left corner of the screen
+  int row;
+  int col;
+  // the board holding whether this GamePiece is connected to the
+  // adjacent left, right, top, or bottom pieces, whether it is
+  // powered and whether the power station is on it
+  BoardStore store;
+
+  GamePiece(BoardStore store, int row, int col) {
+    this.store = store;
+    this.row = row;
+    this.col = col;
+  }
+  
+  // overriding equals to check equality of GamePieces
+  public boolean equals(Object that) {
+    if (!(that instanceof GamePiece)) {
+      return false;
+    }
+    else {
+      GamePiece other = (GamePiece) that;
+      return this.row == other.row && this.col == other.col; 
+    } 
+  }
+  
+  //overriding equals for GamePieces
+  public int hashCode() {
+    return this.col * 5000;
+  }
+
+  // the index of this tile in the store
+  int index() {
+    return this.store.index(this.row, this.col);
+  }
+
+  // to rotate this tiles wires
+  void rotate() {
+    this.store.rotate(this.index(), 1);
+  }
+
+  // does this title have a bottom?
+  boolean hasBottom() {
+    return this.store.hasWire(this.index(), BoardStore.BOTTOM);
+  }
+ 
+  //does this title have a top?
+  boolean hasTop() {
+    return this.store.hasWire(this.index(), BoardStore.TOP);
+  }
+
+  //does this title have a left?
+  boolean hasLeft() {
+    return this.store.hasWire(this.index(), BoardStore.LEFT);
+  }
+
+  //does this title have a right?
+  boolean hasRight() {
+    return this.store.hasWire(this.index(), BoardStore.RIGHT);
+  }
+
+  // is the power station on this tile?
+  boolean hasStation() {
+    return this.store.hasStation(this.index());
+  }
+
+  // is this tile powered?
+  boolean isPowered() {
+    return this.store.isPowered(this.index());
+  }
+
+  // to place a powerStation at this tile
+  void placeStation() {
+    this.store.setStation(this.index(), true);
+  }
+  
+  // to place remove the powerStation at this tile
+  void removeStation() {
+    this.store.setStation(this.index(), false);
+  }
+
+  // to power on this tile
+  void powerOn() {
+    this.store.setPowered(this.index(), true);
+  }
+
+  //to power off this tile
+  void powerOff() {
+    this.store.setPowered(this.index(), false);
+  }
+}
@@ -0,0 +1,13 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.Generate")
+@Label("Generate Board")
+@Description("Wiring up a new board as a spanning tree")
+class GenerateEvent extends BoardEvent {
+  @Label("Generator")
+  String generator;
+}
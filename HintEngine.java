@@ -0,0 +1,112 @@
+package lightemall;
+
+import java.util.*;
+
+// to keep track of which tiles are turned differently from how the board was
+// wired up, and how many clicks would turn them all back, updated in constant
+// time on every rotation, so the next tile to turn and the clicks left are
+// always at hand; a board with more than one solution can be won with some
+// tiles still counted wrong, so par is only exact for puzzles with one
+class HintEngine {
+  // the fewest clockwise turns taking the first wires to the second,
+  // -1 if no turns do
+  static final int[][] CLICKS = HintEngine.makeClicks();
+
+  // the board, and the wires of each tile as it was wired up
+  BoardStore store;
+  byte[] solved;
+  // the tiles turned wrong, in no order
+  int[] wrong;
+  // where each tile is in wrong, -1 if it isn't turned wrong
+  int[] positions;
+  // how many tiles are turned wrong
+  int count;
+  // the fewest clicks that turn every tile back
+  int clicksLeft;
+
+  HintEngine(BoardStore store, byte[] solved) {
+    this.store = store;
+    this.solved = solved;
+    this.wrong = new int[store.size()];
+    this.positions = new int[store.size()];
+    this.reset();
+  }
+
+  // to make the table of turns between wires
+  static int[][] makeClicks() {
+    int[][] clicks = new int[16][16];
+    for (int wires = 0; wires < 16; wires++) {
+      Arrays.fill(clicks[wires], -1);
+      for (int r = 3; r >= 0; r--) {
+        clicks[wires][BoardStore.ROTATIONS[r][wires]] = r;
+      }
+    }
+    return clicks;
+  }
+
+  // the fewest clicks that turn every tile of the given board to the given wires
+  static int clicksLeft(BoardStore store, byte[] solved) {
+    int clicks = 0;
+    for (int i = 0; i < solved.length; i++) {
+      clicks += CLICKS[store.wires(i)][solved[i]];
+    }
+    return clicks;
+  }
+
+  // to look at every tile again, for a new board
+  void reset() {
+    Arrays.fill(this.positions, -1);
+    this.count = 0;
+    this.clicksLeft = 0;
+    for (int i = 0; i < this.solved.length; i++) {
+      int clicks = this.clicksFor(i);
+      this.clicksLeft += clicks;
+      if (clicks != 0) {
+        this.add(i);
+      }
+    }
+  }
+
+  // the fewest clicks that turn the tile at the given index back
+  int clicksFor(int index) {
+    return CLICKS[this.store.wires(index)][this.solved[index]];
+  }
+
+  // to update the tile at the given index, which was just turned clockwise
+  // the given number of times
+  void rotated(int index, int times) {
+    int wires = this.store.wires(index);
+    int before = CLICKS[BoardStore.ROTATIONS[(4 - times) & 3][wires]][this.solved[index]];
+    int after = CLICKS[wires][this.solved[index]];
+    this.clicksLeft += after - before;
+    if (before == 0 && after != 0) {
+      this.add(index);
+    }
+    else if (before != 0 && after == 0) {
+      this.remove(index);
+    }
+  }
+
+  // to count the tile at the given index as turned wrong
+  void add(int index) {
+    this.positions[index] = this.count;
+    this.wrong[this.count] = index;
+    this.count += 1;
+  }
+
+  // to stop counting the tile at the given index as turned wrong, moving the
+  // last wrong tile into its place
+  void remove(int index) {
+    int position = this.positions[index];
+    this.count -= 1;
+    int last = this.wrong[this.count];
+    this.wrong[position] = last;
+    this.positions[last] = position;
+    this.positions[index] = -1;
+  }
+
+  // the tile to turn next, the one most recently turned wrong, -1 if none is
+  int next() {
+    return this.count == 0 ? -1 : this.wrong[this.count - 1];
+  }
+}
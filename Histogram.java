@@ -0,0 +1,49 @@
+package lightemall;
+
+import java.util.Arrays;
+
+// to count values in buckets by their highest bit, so recording one allocates
+// nothing and takes a few instructions, and percentiles come out at most
+// twice the real ones
+class Histogram {
+  // one bucket for 0 and one for every highest bit a long that isn't
+  // negative can have
+  static final int BUCKETS = 64;
+
+  // how many values fell in each bucket, bucket b holding the values
+  // from 2^(b-1) up to 2^b - 1
+  long[] counts;
+  // how many values there are in all
+  long total;
+
+  Histogram() {
+    this.counts = new long[BUCKETS];
+    this.total = 0;
+  }
+
+  // to count the given value, counting negative ones as 0
+  void record(long value) {
+    this.counts[BUCKETS - Long.numberOfLeadingZeros(Math.max(0, value))] += 1;
+    this.total += 1;
+  }
+
+  // to get the biggest value the bucket of the given percentile can hold,
+  // 0 when nothing is counted
+  long percentile(int percent) {
+    long rank = Math.max(1, (long) Math.ceil(this.total * percent / 100.0));
+    long seen = 0;
+    for (int b = 0; b < BUCKETS && this.total > 0; b++) {
+      seen += this.counts[b];
+      if (seen >= rank) {
+        return b == 0 ? 0 : (1L << b) - 1;
+      }
+    }
+    return 0;
+  }
+
+  // to forget every value
+  void clear() {
+    Arrays.fill(this.counts, 0);
+    this.total = 0;
+  }
+}
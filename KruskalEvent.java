@@ -0,0 +1,15 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.Kruskal")
+@Label("Kruskal")
+@Description("Finding the minimum spanning tree of the sorted edges")
+class KruskalEvent extends BoardEvent {
+  @Label("Edges Examined")
+  int edgesExamined;
+  @Label("Tree Edges")
+  int treeEdges;
+}
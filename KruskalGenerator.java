@@ -0,0 +1,336 @@
+package lightemall;
+
+import java.util.*;
+
+// to wire up a board with kruskal's algorithm, over every edge between
+// neighboring tiles sorted by random weights. The edges are kept in int
+// arrays and sorted by counting how many there are of each weight, so
+// wiring up a board makes no Edge or GamePiece objects; wiring up the same
+// board again with the same bias keeps the arrays and groups, and only
+// gives the edges new weights
+class KruskalGenerator extends AGenerator {
+  // the board being wired up, and its width and height
+  BoardStore store;
+  int width;
+  int height;
+  // the bias the edges were made for
+  String bias;
+  // every edge in the order it was made in, as the tile it starts at times
+  // four plus which of PowerEngine.DIRECTIONS it leaves by
+  int[] ends;
+  // the random weight of every edge, in the same order
+  int[] weights;
+  // how many edges there are
+  int edgeCount;
+  // the ends of the edges sorted from least to greatest weight, edges of
+  // the same weight in the order they were made in, so kruskal reads them
+  // straight through instead of jumping around ends
+  int[] sorted;
+  // for sorting: where the edges of each weight start in sorted, and once
+  // sorted, where the edges of each weight end
+  int[] starts;
+  // where the edges of the minimum spanning tree are in sorted, in the
+  // order kruskal took them, and how many there are
+  int[] tree;
+  int treeCount;
+  // representatives in board, indexed by row * width + col
+  UnionFind representatives;
+  // how many edges kruskal looked at before the tree was complete
+  int edgesExamined;
+
+  // to make a new KruskalGenerator
+  public BoardGenerator fresh() {
+    return new KruskalGenerator();
+  }
+
+  // to wire up the tiles of the given board as the minimum spanning tree
+  // of randomly weighted edges
+  public void generate(BoardStore store, Random rand, String bias) {
+    AssignEdgesEvent edges = new AssignEdgesEvent();
+    edges.begin();
+    edges.reused = this.store == store && bias.equals(this.bias);
+    if (edges.reused) {
+      // the same edges, with new weights and every tile on its own again
+      this.reassignEdges(rand);
+      this.representatives.reset();
+    }
+    else {
+      this.makeArrays(store, bias);
+      // assigning edges
+      this.assignEdges(rand, bias);
+      // setting representatives
+      this.representatives = this.setReps();
+    }
+    if (edges.shouldCommit()) {
+      edges.board(this.width, this.height, bias);
+      edges.edges = this.edgeCount;
+      edges.commit();
+    }
+    // using kruskals to reduce edge list
+    // and get mst
+    KruskalEvent tree = new KruskalEvent();
+    tree.begin();
+    this.kruskal();
+    if (tree.shouldCommit()) {
+      tree.board(this.width, this.height, bias);
+      tree.edgesExamined = this.edgesExamined;
+      tree.treeEdges = this.treeCount;
+      tree.commit();
+    }
+    // connects tiles based off of mst
+    this.connectPieces(store);
+  }
+
+  // to make the arrays for the edges of the given board with the given bias,
+  // keeping the last ones when they are big enough
+  void makeArrays(BoardStore store, String bias) {
+    this.store = store;
+    this.width = store.width;
+    this.height = store.height;
+    int count = KruskalGenerator.edgesFor(this.width, this.height, bias);
+    if (this.ends == null || this.ends.length < count) {
+      this.ends = new int[count];
+      this.weights = new int[count];
+      this.sorted = new int[count];
+    }
+    int size = this.width * this.height;
+    if (this.tree == null || this.tree.length < size) {
+      this.tree = new int[size];
+      this.starts = new int[size + 1];
+    }
+    this.edgeCount = 0;
+    this.treeCount = 0;
+  }
+
+  // how many edges assignEdges makes for a board of the given width, height
+  // and bias: every tile has an edge to each neighbor with no bias, and with
+  // one, an edge up or else down, and an edge left or else right
+  static int edgesFor(int width, int height, String bias) {
+    if (bias.equals("normal")) {
+      return 2 * (height - 1) * width + 2 * height * (width - 1);
+    }
+    else if (bias.equals("horizontal") || bias.equals("vertical")) {
+      return width * height * ((height > 1 ? 1 : 0) + (width > 1 ? 1 : 0));
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // to assign random edge values for the tiles and mst
+  void assignEdges(Random rand, String bias) {
+    int val = width * height;
+    for (int h = 0; h < this.height; h++) {
+      for (int w = 0; w < this.width; w++) {
+        int tile = h * this.width + w;
+        // no bias, all randomly assigned
+        if (bias.equals("normal")) {
+          if (h > 0) {
+            this.addEdge(tile, 0, rand.nextInt(val));
+          }
+          if (h < height - 1) {
+            this.addEdge(tile, 2, rand.nextInt(val));
+          }
+          if (w > 0) {
+            this.addEdge(tile, 3, rand.nextInt(val));
+          }
+          if (w < width - 1) {
+            this.addEdge(tile, 1, rand.nextInt(val));
+          }
+        }
+        // horizontal bias
+        // giving vertical wiring a less edge weight
+        if (bias.equals("horizontal")) {
+          if (h > 0) {
+            this.addEdge(tile, 0, rand.nextInt(1));
+          }
+          else if (h < height - 1) {
+            this.addEdge(tile, 2, rand.nextInt(1));
+          }
+          if (w > 0) {
+            this.addEdge(tile, 3, rand.nextInt(val));
+          }
+          else if (w < width - 1) {
+            this.addEdge(tile, 1, rand.nextInt(val));
+          }
+        }
+        // vertical bias
+        // giving vertical wiring a less edge weight
+        if (bias.equals("vertical")) {
+          if (h > 0) {
+            this.addEdge(tile, 0, rand.nextInt(val));
+          }
+          else if (h < height - 1) {
+            this.addEdge(tile, 2, rand.nextInt(val));
+          }
+          if (w > 0) {
+            this.addEdge(tile, 3, rand.nextInt(1));
+          }
+          else if (w < width - 1) {
+            this.addEdge(tile, 1, rand.nextInt(1));
+          }
+        }
+      }
+    }
+    this.bias = bias;
+    // sorting from least to greatest edge values
+    this.sortEdges();
+  }
+
+  // to add an edge from the given tile, leaving it by the given one of
+  // PowerEngine.DIRECTIONS, with the given weight
+  void addEdge(int tile, int side, int weight) {
+    this.ends[this.edgeCount] = tile << 2 | side;
+    this.weights[this.edgeCount] = weight;
+    this.edgeCount += 1;
+  }
+
+  // to give every edge a new random value, drawn in the order the edges
+  // were made in, so the board is the same as one made from scratch
+  void reassignEdges(Random rand) {
+    int val = width * height;
+    for (int k = 0; k < this.edgeCount; k++) {
+      // the bias gives the wires it favors no weight at all
+      boolean vertical = (this.ends[k] & 1) == 0;
+      if ((vertical && this.bias.equals("horizontal"))
+          || (!vertical && this.bias.equals("vertical"))) {
+        this.weights[k] = rand.nextInt(1);
+      }
+      else {
+        this.weights[k] = rand.nextInt(val);
+      }
+    }
+    this.sortEdges();
+  }
+
+  // to sort the edges by weight, keeping edges of the same weight in the
+  // order they were made in, by counting the edges of each weight: every
+  // weight is less than the number of tiles, so this takes one pass to count
+  // and one to place, with no comparisons
+  void sortEdges() {
+    int[] starts = this.starts;
+    int val = this.width * this.height;
+    Arrays.fill(starts, 0, val + 1, 0);
+    for (int k = 0; k < this.edgeCount; k++) {
+      starts[this.weights[k] + 1] += 1;
+    }
+    for (int v = 1; v <= val; v++) {
+      starts[v] += starts[v - 1];
+    }
+    for (int k = 0; k < this.edgeCount; k++) {
+      int weight = this.weights[k];
+      this.sorted[starts[weight]] = this.ends[k];
+      starts[weight] += 1;
+    }
+  }
+
+  // the weight of the edge at the given place in sorted, the least weight
+  // whose edges end after it
+  int weightAt(int place) {
+    int low = 0;
+    int high = this.width * this.height - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (this.starts[mid] > place) {
+        high = mid;
+      }
+      else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  // the tile at the other end of the given edge end
+  int otherEnd(int end) {
+    return this.store.neighbor(end >> 2, PowerEngine.DIRECTIONS[end & 3]);
+  }
+
+  // to set GamePieces as representatives of themselves
+  UnionFind setReps() {
+    return new UnionFind(this.width * this.height);
+  }
+
+  // to get the index of the given GamePiece in the union-find arrays
+  int indexOf(GamePiece node) {
+    return node.row * this.width + node.col;
+  }
+
+  // to find whether two nodes are in the same group
+  public GamePiece find(GamePiece node) {
+    int rep = this.representatives.find(this.indexOf(node));
+    return new GamePiece(this.store, rep / this.width, rep % this.width);
+  }
+
+  // to union two disjoint groups together
+  void union(GamePiece from, GamePiece to) {
+    this.representatives.union(this.indexOf(from), this.indexOf(to));
+  }
+
+  // implementation of kruskal's algorithm to find the minimum spanning tree
+  // for the board, returns how many edges the tree has
+  int kruskal() {
+    // a spanning tree of the board has one less edge than there are tiles
+    int treeSize = this.width * this.height - 1;
+    // the tile the next tile over is, by each of PowerEngine.DIRECTIONS
+    int[] offsets = {-this.width, 1, this.width, -1};
+    int[] sorted = this.sorted;
+    UnionFind representatives = this.representatives;
+    int count = 0;
+    // position in sorted, which is sorted by edge weights
+    int cursor = 0;
+
+    // stopping as soon as the tree spans the board
+    while (count < treeSize && cursor < this.edgeCount) {
+      int end = sorted[cursor];
+      int from = end >> 2;
+
+      // union the two values together if they are in different groups
+      if (representatives.union(from, from + offsets[end & 3])) {
+        this.tree[count] = cursor;
+        count += 1;
+      }
+      cursor += 1;
+    }
+    this.edgesExamined = cursor;
+    this.treeCount = count;
+    return count;
+  }
+
+  // to connect the pieces by changing their boolean values
+  // based on the edges in the mst
+  void connectPieces(BoardStore store) {
+    for (int k = 0; k < this.treeCount; k++) {
+      int end = this.sorted[this.tree[k]];
+      AGenerator.join(store, end >> 2, PowerEngine.DIRECTIONS[end & 3]);
+    }
+  }
+
+  // to make an Edge of the edge at the given place in sorted, between views
+  // of its tiles
+  Edge edge(int place) {
+    int from = this.sorted[place] >> 2;
+    int to = this.otherEnd(this.sorted[place]);
+    return new Edge(new GamePiece(this.store, from / this.width, from % this.width),
+        new GamePiece(this.store, to / this.width, to % this.width), this.weightAt(place));
+  }
+
+  // to get every edge as an Edge, sorted from least to greatest weight
+  ArrayList<Edge> allEdges() {
+    ArrayList<Edge> edges = new ArrayList<Edge>(this.edgeCount);
+    for (int k = 0; k < this.edgeCount; k++) {
+      edges.add(this.edge(k));
+    }
+    return edges;
+  }
+
+  // to get the edges of the minimum spanning tree as Edges, in the order
+  // kruskal took them
+  ArrayList<Edge> mst() {
+    ArrayList<Edge> edges = new ArrayList<Edge>(this.treeCount);
+    for (int k = 0; k < this.treeCount; k++) {
+      edges.add(this.edge(this.tree[k]));
+    }
+    return edges;
+  }
+}
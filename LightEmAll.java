@@ -1,4 +1,20 @@
+package lightemall;
+
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import tester.*;
 import javalib.impworld.*;
 import java.awt.Color;
@@ -6,181 +22,98 @@ import javalib.worldimages.*;
 
 // to represent the LightEmAll world
 class LightEmAll extends World {
-  // a list of columns of GamePieces,
-  // i.e., represents the board in column-major order
+  // the board, the station, the clicks and whether the game is won
+  LightEngine engine;
+  // a list of rows of GamePieces, each a view of a tile in the engine's store
   ArrayList<ArrayList<GamePiece>> board;
-  // a list of all edges
-  ArrayList<Edge> allEdges;
-  // a list of edges of the minimum spanning tree
-  ArrayList<Edge> mst;
-  // the width and height of the board
-  int width;
-  int height;
-  // the current location of the power station,
-  // as well as its effective radius
-  int powerRow;
-  int powerCol;
-  // for rotations
-  Random rand;
-  // win state
-  boolean win;
+  // the part of the board shown in the window, and how big its tiles are
+  Viewport viewport;
+  // the image of the whole board, kept between frames
+  BoardRenderer renderer;
+  // where every move is kept as it is made, null if the game isn't kept
+  MoveJournal journal;
+  // makes the next boards while this one is played, null if they are made
+  // on restart
+  BoardPrefetcher prefetcher;
+  // how long frames and clicks take, drawn over the game when on
+  PerformanceHud hud;
+  // whether the next tile to turn, and the clicks left, are shown
+  boolean hinting;
   // timer values
   int seconds; 
   int minutes;
-  // click value
-  int clicks;
-  // bias for edges
-  // horizontal, vertical, or normal
-  String bias;
-  // representatives in board
-  HashMap<GamePiece, GamePiece> representatives;
   
   // regular game constructor (no bias)
   LightEmAll(int width, int height) {
-    this.width = width;
-    this.height = height;
-    // origin: top left
-    this.powerRow = 0;
-    this.powerCol = 0;
-    // initializes board
-    this.board = this.makeBoard();
-    // to randomize tiles and edge weights
-    this.rand = new Random();
-    // no for regular game
-    this.bias = "normal";
-    // assigning edges
-    this.allEdges = new ArrayList<Edge>();
-    this.assignEdges();
-    // setting representatives
-    this.representatives = this.setReps();
-    // using kruskals to reduce edge list 
-    // and get mst
-    this.mst = this.kruskal();
-    // connecting pieces based off mst
-    this.connectPieces();
-    // to randomly rotate tiles for gameplay
-    this.randomStart();
-    // win condition
-    this.win = false;
-    // BFS
-    this.lightEmUp();
-    // timer values, start at 0
-    this.seconds = 0;
-    this.minutes = 0;
-    // click value, starts at 0
-    this.clicks = 0;
+    // a minimum spanning tree of random weights, like kruskals gives,
+    // made from int arrays with no sorting
+    this(width, height, "normal", new Random(), new BoruvkaGenerator());
   }
   
   // game constructor for choosing bias
   LightEmAll(int width, int height, String bias) {
-    this.width = width;
-    this.height = height;
-    // origin: top left
-    this.powerRow = 0;
-    this.powerCol = 0;
-    // initializes board
-    this.board = this.makeBoard();
-    // to randomize tiles and edge weights
-    this.rand = new Random();
     // ability to choose bias based off of String input
     // "horizontal", "vertical", or "normal"
-    this.bias = bias;
-    // assignign edges
-    this.allEdges = new ArrayList<Edge>();
-    this.assignEdges();
-    // setting representatives
-    this.representatives = this.setReps();
-    // using kruskals to reduce edge list 
-    // and get mst
-    this.mst = this.kruskal();
-    // connects tiles based off of mst
-    this.connectPieces();
-    // randomly rotates the tiles 
-    this.randomStart();
-    // win condition
-    this.win = false;
-    // BFS
-    this.lightEmUp();
-    // timer values
-    // start at 0
-    this.seconds = 0;
-    this.minutes = 0;
-    // click value
-    // starts at 0
-    this.clicks = 0;
+    this(width, height, bias, new Random(), new BoruvkaGenerator());
   }
   
   // constructor for testing, takes in a seeded random
   LightEmAll(int width, int height, Random rand) {
-    this.width = width;
-    this.height = height;
-    // always in the middle (part 1)
-    this.powerRow = 0;
-    this.powerCol = 0;
-    // initializes board
-    this.board = this.makeBoard();
-    // seeded random for testing
-    this.rand = rand;
     // no bias for tests
-    this.bias = "normal";
-    // assigning edges
-    this.allEdges = new ArrayList<Edge>();
-    this.assignEdges();
-    // setting representatives
-    this.representatives = this.setReps();
-    // using kruskals to reduce edge list 
-    // and get mst
-    this.mst = this.kruskal();
-    // connects tiles based off of mst
-    this.connectPieces();
-    // randomly rotates the tiles 
-    this.randomStart();
-    // win condition
-    this.win = false;
-    // BFS
-    this.lightEmUp();
+    this(width, height, "normal", rand, new KruskalGenerator());
+  }
+
+  // game constructor for huge boards, wired up in parallel from the given seed
+  LightEmAll(int width, int height, String bias, long seed) {
+    // the same seed always gives the same board,
+    // no edge lists, the generator wires the store directly
+    this(LightEngine.seeded(width, height, bias, seed));
+  }
+
+  // game constructor for choosing how the board is wired up
+  LightEmAll(int width, int height, String bias, Random rand, BoardGenerator generator) {
+    // the game itself, with nothing drawn
+    this(new LightEngine(width, height, bias, rand, generator));
+  }
+
+  // game constructor for a board saved in a board file
+  LightEmAll(BoardRecord record) {
+    // new boards on restart made the way seeded games make them
+    this(new LightEngine(record, new BoruvkaGenerator()));
+  }
+
+  // game constructor for playing on from the moves in the given journal,
+  // keeping every move made from here in it too
+  LightEmAll(MoveJournal journal) throws IOException {
+    this(journal.restore());
+    this.journal = journal;
+  }
+
+  // game constructor for drawing the given game
+  LightEmAll(LightEngine engine) {
+    this.engine = engine;
+    this.board = this.makeBoard();
+    this.viewport = new Viewport(engine.width, engine.height);
+    // drawing the board, only changed tiles are drawn again from here on
+    this.renderer = new BoardRenderer(this.engine.store, this.viewport);
+    this.hud = new PerformanceHud();
     // timer values
     // start at 0
     this.seconds = 0;
     this.minutes = 0;
-    // click value
-    // starts at 0
-    this.clicks = 0;
-  }
-
-  // to randomly rotate tiles at the start of the game
-  public void randomStart() {
-    // random amount of rotations 
-    int rotateIt = rand.nextInt(4);
-    for (int w = 0; w < width; w++) {
-      for (int h = 0; h < height; h++) {
-        GamePiece tile = this.board.get(h).get(w);
-        for (int r = 0; r < rotateIt; r++) {
-          // rotating tile rotateIt amount of times
-          tile.rotate();
-        }
-        // resetting random amount of rotations for next tile
-        rotateIt = rand.nextInt(4);
-      }
-    }
   }
   
-  // to make the board of the game
-  public ArrayList<ArrayList<GamePiece>> makeBoard() {
+  // to make the board of the game, as views of the tiles in the engine's store
+  ArrayList<ArrayList<GamePiece>> makeBoard() {
     ArrayList<ArrayList<GamePiece>> board = new ArrayList<ArrayList<GamePiece>>();
 
-    for (int h = 0; h < this.height; h++) {
+    for (int h = 0; h < this.engine.height; h++) {
       // creating rows
       ArrayList<GamePiece> row = new ArrayList<GamePiece>();
       
-      for (int w = 0; w < this.width; w++) {
+      for (int w = 0; w < this.engine.width; w++) {
         // creating each GamePiece in columns
-        GamePiece gp = new GamePiece(h, w);
-        row.add(gp);
-        // setting powerStation to origin (top left)
-        if (h == 0 && w == 0) {
-          gp.powerStation = true;
-        }
+        row.add(new GamePiece(this.engine.store, h, w));
       }
       // adding everything to board
       board.add(row);  
@@ -188,82 +121,99 @@ class LightEmAll extends World {
     return board;
   }
   
-  // to connect the pieces by changing their boolean values
-  // based on the edges in the mst
-  void connectPieces() {
-    for (Edge e : this.mst) {
- 
-      GamePiece gp1 = e.fromNode;
-      GamePiece gp2 = e.toNode;
-      
-      if (gp1.row < gp2.row && gp1.col == gp2.col) {
-        gp1.bottom = true;
-        gp2.top = true;
-      }
-      
-      if (gp1.row >  gp2.row && gp1.col == gp2.col) {
-        gp1.top = true;
-        gp2.bottom = true;
-      }
-      
-      if (gp1.row == gp2.row && gp1.col < gp2.col) {
-        gp1.right = true;
-        gp2.left = true;
-      }
-      
-      if (gp1.row == gp2.row && gp1.col > gp2.col) {
-        gp1.left = true;
-        gp2.right = true;
-      }
+  // to start making the given number of boards ahead on a thread of their own,
+  // for restarting with no wait; they are made like LightEngine.seeded makes
+  // them, so a journal can still make each of them again from its seed
+  void prefetch(int ahead) {
+    if (this.prefetcher != null) {
+      this.prefetcher.close();
     }
+    // boards made the way this game makes them, and the way LightEngine.seeded
+    // does when a journal has to make them again
+    BoardGenerator generator = this.journal == null ? this.engine.generator
+        : new BoruvkaGenerator();
+    this.prefetcher = new BoardPrefetcher(this.engine.width, this.engine.height,
+        this.engine.bias, this.engine.rand.nextLong(), generator::fresh, ahead,
+        BoardPrefetcher.MAX_BYTES);
   }
-  
+
   // to draw the current scene
   public WorldScene makeScene() {
-    WorldScene scene = new WorldScene(this.width, this.height);
+    FrameEvent event = new FrameEvent();
+    event.begin();
+    long frameStart = this.hud.start();
+    long frameBytes = this.hud.allocated();
+    WorldScene scene = new WorldScene(this.engine.width, this.engine.height);
     WorldImage clock = new TextImage("【" + this.minutesAsString() + " : " 
         + this.secondsAsString() + "】", 30, FontStyle.BOLD, Color.DARK_GRAY);
     WorldImage clicks =  new TextImage("Rotations: " + 
-        Integer.toString(this.clicks), 25, FontStyle.BOLD, Color.DARK_GRAY);
-    WorldImage box = new RectangleImage(width * 35, height * 20, 
+        Integer.toString(this.engine.clicks), 25, FontStyle.BOLD, Color.DARK_GRAY);
+    // sized by the window, which is the size of the board at 70 pixels a tile
+    // until the board is too big to fit
+    int viewWidth = this.viewport.pixelWidth;
+    int viewHeight = this.viewport.pixelHeight;
+    WorldImage box = new RectangleImage(viewWidth / 2, viewHeight * 2 / 7, 
         OutlineMode.SOLID, Color.LIGHT_GRAY);
     WorldImage winText =  new AboveImage(new TextImage("YOU WIN!", 
-        width * 7, FontStyle.BOLD, Color.black), 
-        new AboveImage(new TextImage("Clicks: " + Integer.toString(this.clicks), 
-            width * 3, FontStyle.BOLD, Color.black), 
-            new TextImage("Press r to restart", width * 3, FontStyle.BOLD, Color.black)));
+        viewWidth / 10, FontStyle.BOLD, Color.black), 
+        new AboveImage(new TextImage("Clicks: " + Integer.toString(this.engine.clicks), 
+            viewWidth * 3 / 70, FontStyle.BOLD, Color.black), 
+            new TextImage("Press r to restart", viewWidth * 3 / 70, FontStyle.BOLD,
+                Color.black)));
     WorldImage winBox = new OverlayImage(winText, box);
-    for (int w = 0; w < width; w++) {
-      for (int h = 0; h < height; h++) {
-        GamePiece tile = this.board.get(h).get(w);
-        // in-play game scene
-        if (tile.powerStation) {
-          scene.placeImageXY(tile.tileImage(70, 5, Color.red, true), w * 70 + 35, h * 70 + 35);
-        }
-
-        else if (tile.powered) {
-          scene.placeImageXY(tile.tileImage(70, 5, Color.red, false), w * 70 + 35, h * 70 + 35);
-        }
-
-        else {
-          scene.placeImageXY(tile.tileImage(70, 5, Color.LIGHT_GRAY, false), w * 70 + 35,
-              h * 70 + 35);
-        }
-      }
-    }
+    // the visible tiles as one image, with only the tiles that changed drawn again
+    int tileSize = this.viewport.tileSize;
+    scene.placeImageXY(this.renderer.image(), this.viewport.cols * tileSize / 2,
+        this.viewport.rows * tileSize / 2);
     // scene when game is won
-    if (this.win) {
-      scene.placeImageXY(winBox, width * 35, height * 35);
+    if (this.engine.win) {
+      scene.placeImageXY(winBox, viewWidth / 2, viewHeight / 2);
     }
     // clock and click counts
-    scene.placeImageXY(clock, width * 60, height * 70 + 35);
-    scene.placeImageXY(clicks, width * 10, height * 70 + 35);
+    scene.placeImageXY(clock, viewWidth * 6 / 7, viewHeight + 35);
+    scene.placeImageXY(clicks, viewWidth / 7, viewHeight + 35);
+    // the next tile to turn, and how far off par the game is
+    if (this.hinting && !this.engine.win) {
+      this.drawHint(scene);
+    }
+    // timings between the clicks and the clock
+    if (this.hud.on) {
+      scene.placeImageXY(this.hud.image(), viewWidth / 2, viewHeight + 35);
+    }
+    this.hud.frame(frameStart, frameBytes);
+    if (event.shouldCommit()) {
+      event.board(this.engine.width, this.engine.height, this.engine.bias);
+      event.drawn = this.renderer.drawn;
+      event.commit();
+    }
     return scene;
   }
   
+  // to outline the next tile to turn, if it is shown, and write how many
+  // clicks are left and the par of the board under the clicks
+  void drawHint(WorldScene scene) {
+    HintEngine hints = this.engine.hints();
+    int tile = hints.next();
+    int row = tile < 0 ? -1 : this.engine.store.rowOf(tile);
+    int col = tile < 0 ? -1 : this.engine.store.colOf(tile);
+    Viewport view = this.viewport;
+    if (row >= view.row0 && row < view.row0 + view.rows
+        && col >= view.col0 && col < view.col0 + view.cols) {
+      scene.placeImageXY(new RectangleImage(view.tileSize - 4, view.tileSize - 4,
+          OutlineMode.OUTLINE, Color.ORANGE), (col - view.col0) * view.tileSize
+          + view.tileSize / 2, (row - view.row0) * view.tileSize + view.tileSize / 2);
+    }
+    String text = "Clicks left: " + hints.clicksLeft + "  Par: " + this.engine.par;
+    if (tile >= 0) {
+      text = "Turn (" + row + ", " + col + ") x" + hints.clicksFor(tile) + "  " + text;
+    }
+    scene.placeImageXY(new TextImage(text, 14, FontStyle.BOLD, Color.DARK_GRAY),
+        view.pixelWidth / 2, view.pixelHeight + 70);
+  }
+  
   // timer for how long the game has been running
   public void onTick() {
-    if (!this.win) {
+    if (!this.engine.win) {
       if (this.seconds > 0 && this.seconds % 59 == 0) {
         this.seconds = 0;
         this.minutes += 1;
@@ -294,480 +244,145 @@ class LightEmAll extends World {
     }
   }
   
-  // to assign random edge values for the GamePieces and mst
-  void assignEdges() {
-    int val = width * height;
-    for (int h = 0; h < this.height; h++) {
-      for (int w = 0; w < this.width; w++) {
-        GamePiece tile = board.get(h).get(w);
-        // no bias, all randomly assigned
-        if (bias.equals("normal")) {
-          if (h > 0) {
-            Edge e = new Edge(tile, board.get(h - 1).get(w), rand.nextInt(val));
-            allEdges.add(e);
-          }
-          if (h < height - 1) {
-            Edge e = new Edge(tile, board.get(h + 1).get(w), rand.nextInt(val));
-            allEdges.add(e);
-          }
-          if (w > 0) {
-            Edge e = new Edge(tile, board.get(h).get(w - 1), rand.nextInt(val));
-            allEdges.add(e);
-          }
-          if (w < width - 1) {
-            Edge e = new Edge(tile, board.get(h).get(w + 1), rand.nextInt(val));
-            allEdges.add(e);
-          }
-        }
-        // horizontal bias
-        // giving vertical wiring a less edge weight
-        if (bias.equals("horizontal")) {
-          if (h > 0) {
-            Edge e = new Edge(tile, board.get(h - 1).get(w), rand.nextInt(1));
-            allEdges.add(e);
-          }
-          else if (h < height - 1) {
-            Edge e = new Edge(tile, board.get(h + 1).get(w), rand.nextInt(1));
-            allEdges.add(e);
-          }
-          if (w > 0) {
-            Edge e = new Edge(tile, board.get(h).get(w - 1), rand.nextInt(val));
-            allEdges.add(e);
-          }
-          else if (w < width - 1) {
-            Edge e = new Edge(tile, board.get(h).get(w + 1), rand.nextInt(val));
-            allEdges.add(e);
-          }
-        }
-        // vertical bias
-        // giving vertical wiring a less edge weight
-        if (bias.equals("vertical")) {
-          if (h > 0) {
-            Edge e = new Edge(tile, board.get(h - 1).get(w), rand.nextInt(val));
-            allEdges.add(e);
-          }
-          else if (h < height - 1) {
-            Edge e = new Edge(tile, board.get(h + 1).get(w), rand.nextInt(val));
-            allEdges.add(e);
-          }
-          if (w > 0) {
-            Edge e = new Edge(tile, board.get(h).get(w - 1), rand.nextInt(1));
-            allEdges.add(e);
-          }
-          else if (w < width - 1) {
-            Edge e = new Edge(tile, board.get(h).get(w + 1), rand.nextInt(1));
-            allEdges.add(e);
-          }
-        }
-      }
+  // handler for mouse clicks clicks
+  public void onMouseClicked(Posn pos) {
+    // the tile under the mouse, in the part of the board being shown
+    int tile = this.viewport.tileAt(pos.x, pos.y);
+
+    // constraints for out of bounds
+    if (tile < 0) {
+      return;
     }
-    // sorting from least to greatest edge values
-    allEdges.sort(new EdgeSorting());
-  }
-  
-  // to set GamePieces as representatives of themselves
-  HashMap<GamePiece, GamePiece> setReps() {
-    HashMap<GamePiece, GamePiece> representatives = new HashMap<GamePiece, GamePiece>();
-    for (ArrayList<GamePiece> g : board) {
-      for (GamePiece p : g) {
-        representatives.put(p, p);
+    
+    // rotating the clicked tile, unless the game is won
+    ClickEvent event = new ClickEvent();
+    event.begin();
+    long start = this.hud.start();
+    if (this.engine.rotate(this.engine.store.rowOf(tile), this.engine.store.colOf(tile))) {
+      this.hud.click(start, this.engine.power.visited());
+      if (event.shouldCommit()) {
+        event.board(this.engine.width, this.engine.height, this.engine.bias);
+        event.tile = tile;
+        event.visited = this.engine.power.visited();
+        event.powered = this.engine.poweredCount();
+        event.commit();
       }
+      this.keep(MoveJournal.rotation(tile));
     }
-    return representatives;
   }
   
-  // to find whether two nodes are in the same group
-  public GamePiece find(GamePiece node) {
-    GamePiece from = this.representatives.get(node);
-   
-    if (node.equals(from)) {
-      return from;
-    } 
-    else {
-      return find(from);
+  // to keep the given move in the journal, if there is one, playing on with
+  // nothing kept once the journal can't take it
+  void keep(int move) {
+    if (this.journal != null && !this.journal.append(move)) {
+      this.dropJournal();
     }
   }
 
-  // to union two disjoint groups together
-  void union(GamePiece from, GamePiece to) {
-    this.representatives.put(find(from), find(to));
-  }
-
-  // implementation of kruskal's algorithm to find the minimum spanning tree for the board
-  public ArrayList<Edge> kruskal() {  
-    
-    ArrayList<Edge> worklist = new ArrayList<Edge>(); // all edges in graph, sorted by edge weights;
-    ArrayList<Edge> edgesInTree = new ArrayList<Edge>();
-
-    // adding edges to the worklist
-    worklist.addAll(allEdges);
-    
-    // reducing to one tree
-    while (worklist.size() > 1) {
-      Edge curr = worklist.remove(0);
-
-      if (find(curr.fromNode).equals(find(curr.toNode))) {
-       // do nothing  
-      }
-
-      // union the two values together
-      else { 
-        edgesInTree.add(curr);
-        union(find(curr.fromNode),
-            find(curr.toNode));
-      }
+  // to stop keeping moves, closing the journal so its thread and file don't
+  // outlive it, which may fail again the way the journal already has
+  void dropJournal() {
+    try {
+      this.journal.close();
     }
-    return edgesInTree;
-  }
-
-  // handler for mouse clicks clicks
-  public void onMouseClicked(Posn pos) {
-    int tileSize = 70;
-    int w = Math.floorDiv(pos.x, tileSize);
-    int h = Math.floorDiv(pos.y, tileSize);
-
-    // constraints for out of bounds and if won
-    if (w > this.width - 1 || h > this.height - 1 || this.win) {
-      return;
+    catch (IOException e) {
+      // nothing more can be kept either way
     }
-    
-    GamePiece tileClicked = board.get(h).get(w);
-
-    tileClicked.rotate();
-    
-    // updating clicks values for each rotation
-    this.clicks += 1;
-    
-    // running BFS method and checking for win after each click
-    this.lightEmUp();
-    this.winCondition();
+    this.journal = null;
   }
 
   // keyEvent for moving around powerStation
   public void onKeyEvent(String key) {
     
+    // showing and hiding the timings, won or not
+    if (key.equals("p")) {
+      this.hud.toggle();
+      return;
+    }
+    
+    // showing and hiding the next tile to turn
+    if (key.equals("h")) {
+      this.hinting = !this.hinting;
+      return;
+    }
+    
     // to make the game stop when won
     // only an option to restart
-    if (this.win) {
+    if (this.engine.win) {
       if (key.equals("r")) {
-        // using same bias as before
-        String gameBias = this.bias;
-        
-        this.powerRow = 0;
-        this.powerCol = 0;
-        this.board = this.makeBoard();
-        this.rand = new Random();
-        this.bias = gameBias;
-        this.allEdges = new ArrayList<Edge>();
-        this.assignEdges();
-        this.representatives = this.setReps();
-        this.mst = this.kruskal();
-        this.connectPieces();
-        this.randomStart();
-        this.win = false;
-        this.lightEmUp();
+        // a new board with the same bias as before, made in the same
+        // memory, which the renderer keeps drawing from
+        RestartEvent event = new RestartEvent();
+        event.begin();
+        BoardRecord next = null;
+        if (this.prefetcher != null) {
+          try {
+            next = this.prefetcher.poll();
+          }
+          catch (IllegalStateException e) {
+            // making boards on the spot from here on
+            this.prefetcher.close();
+            this.prefetcher = null;
+          }
+        }
+        if (this.journal != null) {
+          // kept in the same journal, made from a seed of its own
+          long seed = next == null ? this.engine.rand.nextLong() : next.seed;
+          try {
+            this.journal.restart(seed);
+          }
+          catch (IOException e) {
+            // playing on with nothing kept
+            this.dropJournal();
+          }
+          if (next == null) {
+            this.engine.restart(seed);
+          }
+        }
+        else if (next == null) {
+          this.engine.restart(this.engine.rand);
+        }
+        // a board made ahead only has to be copied in
+        if (next != null) {
+          this.engine.load(next);
+        }
+        if (event.shouldCommit()) {
+          event.board(this.engine.width, this.engine.height, this.engine.bias);
+          event.prefetched = next != null;
+          event.commit();
+        }
         this.seconds = 0;
         this.minutes = 0;
-        this.clicks = 0;
       }
       else {
         return;
       }
     }
-    // tile where the power station is
-    GamePiece tile = this.board.get(this.powerRow).get(this.powerCol);
     
-    // if not leftmost column
-    if (this.powerCol > 0) {
-      GamePiece tileLeft = this.board.get(this.powerRow).get(this.powerCol - 1);
-
-      if (key.equals("left") && tile.hasLeft() && tileLeft.hasRight()) {
-        tile.removeStation();
-        int newPowerCol = this.powerCol - 1;
-        // tile where station was moved to
-        GamePiece newTile = this.board.get(this.powerRow).get(newPowerCol);
-        newTile.placeStation();
-        this.powerCol = newPowerCol;
-        this.lightEmUp();
-
-      }
-    }
-
-    // if not rightmost column
-    if (this.powerCol < width - 1) {
-      GamePiece tileRight = this.board.get(this.powerRow).get(this.powerCol + 1);
-
-      if (key.equals("right") && tile.hasRight() && tileRight.hasLeft()) {
-        tile.removeStation();
-        int newPowerCol = this.powerCol + 1;
-        // tile where station was moved to
-        GamePiece newTile = this.board.get(this.powerRow).get(newPowerCol);
-        newTile.placeStation();
-        this.powerCol = newPowerCol;
-        this.lightEmUp();
-
-      }
-    }
-
-    // if not top row
-    if (this.powerRow > 0) {
-      GamePiece tileTop = this.board.get(this.powerRow - 1).get(this.powerCol);
-
-      if (key.equals("up") && tile.hasTop() && tileTop.hasBottom()) {
-        tile.removeStation();
-        int newPowerRow = this.powerRow - 1;
-        // tile where station was moved to
-        GamePiece newTile = this.board.get(newPowerRow).get(this.powerCol);
-        newTile.placeStation();
-        this.powerRow = newPowerRow;
-        this.lightEmUp();
-
-      }
-    }
-
-    // if not bottom row
-    if (this.powerRow < height - 1) {
-      GamePiece tileBottom = this.board.get(this.powerRow + 1).get(this.powerCol);
-
-      if (key.equals("down") && tile.hasBottom() && tileBottom.hasTop()) {
-        tile.removeStation();
-        int newPowerRow = this.powerRow + 1;
-        // tile where station was moved to
-        GamePiece newTile = this.board.get(newPowerRow).get(this.powerCol);
-        newTile.placeStation();
-        this.powerRow = newPowerRow;
-        this.lightEmUp();
-      }
+    // moving the window around the board, and zooming in and out
+    if (this.viewport.onKey(key)) {
+      this.renderer.show();
+      return;
     }
     
-  }
-
-  // BFS for powering neighboring pieces
-  public void lightEmUp() {
-    Queue<GamePiece> worklist = new LinkedList<GamePiece>();
-    ArrayList<GamePiece> alreadySeen = new ArrayList<GamePiece>();
-    GamePiece station = this.board.get(this.powerRow).get(this.powerCol);
-    // initialize worklist with the powerstation
-    worklist.add(station);
-
-    for (int w = 0; w < width; w++) {
-      for (int h = 0; h < height; h++) {
-        GamePiece tile = this.board.get(h).get(w);
-        tile.powerOff();
-      }
-    }
-
-    // as long as the worklist isn't empty
-    while (!worklist.isEmpty()) {
-      GamePiece next = worklist.poll();
-      next.powerOn();
-
-      // we've already seen this one
-      if (!alreadySeen.contains(next)) {
-        if (next.col > 0) {
-          GamePiece tileLeft = this.board.get(next.row).get(next.col - 1);
-
-          if (next.hasLeft() && tileLeft.hasRight()) {
-            worklist.add(tileLeft);
-          }
-        }
-
-        if (next.col < width - 1) {
-          GamePiece tileRight = this.board.get(next.row).get(next.col + 1);
-
-          if (tileRight.hasLeft() && next.hasRight()) {
-            worklist.add(tileRight);
-          }
-        }
-
-        if (next.row > 0) {
-          GamePiece tileTop = this.board.get(next.row - 1).get(next.col);
-
-          if (tileTop.hasBottom() && next.hasTop()) {
-            worklist.add(tileTop);
-          }
-        }
-        
-        if (next.row < height - 1) {
-          GamePiece tileBottom = this.board.get(next.row + 1).get(next.col);
-
-          if (tileBottom.hasTop() && next.hasBottom()) {
-            worklist.add(tileBottom);
-          }
-        }
-        alreadySeen.add(next);
+    // taking moves back and making them again
+    if (key.equals("z")) {
+      if (this.engine.undo()) {
+        this.keep(MoveJournal.UNDO);
       }
+      return;
     }
-  }
-
-  // to check if the game has been won
-  void winCondition() {
-    int target = width * height;
-    for (int w = 0; w < width; w++) {
-      for (int h = 0; h < height; h++) {
-        GamePiece tile = this.board.get(h).get(w);
-        if (tile.powered) {
-          target -= 1;
-        }
+    if (key.equals("y")) {
+      if (this.engine.redo()) {
+        this.keep(MoveJournal.REDO);
       }
+      return;
     }
-    if (target == 0) {
-      this.win = true;
-    }
-  }
-}
-
-// to represent a GamePiece
-class GamePiece {
-  // in logical coordinates, with the origin
-  // at the top-left corner of the screen
-  int row;
-  int col;
-  // whether this GamePiece is connected to the
-  // adjacent left, right, top, or bottom pieces
-  boolean left;
-  boolean right;
-  boolean top;
-  boolean bottom;
-  // whether the power station is on this piece
-  boolean powerStation;
-  boolean powered;
-  int distance;
-
-  GamePiece(int row, int col) {
-    this.row = row;
-    this.col = col;
-    this.left = false;
-    this.right = false;
-    this.top = false;
-    this.bottom = false;
-    this.powerStation = false;
-    this.powered = false;
-    this.distance = 0;
-  }
-  
-  // overriding equals to check equality of GamePieces
-  public boolean equals(Object that) {
-    if (!(that instanceof GamePiece)) {
-      return false;
-    }
-    else {
-      GamePiece other = (GamePiece) that;
-      return this.row == other.row && this.col == other.col; 
-    } 
-  }
-  
-  //overriding equals for GamePieces
-  public int hashCode() {
-    return this.col * 5000;
-  }
-
-  // Generate an image of this, the given GamePiece.
-  // - size: the size of the tile, in pixels
-  // - wireWidth: the width of wires, in pixels
-  // - wireColor: the Color to use for rendering wires on this
-  // - hasPowerStation: if true, draws a fancy star on this tile to represent the
-  // power station
-  WorldImage tileImage(int size, int wireWidth, Color wireColor, boolean hasPowerStation) {
-    // Start tile image off as a blue square with a wire-width square in the middle,
-    // to make image "cleaner" (will look strange if tile has no wire, but that
-    // can't be)
-    WorldImage image = new OverlayImage(
-        new RectangleImage(wireWidth, wireWidth, OutlineMode.SOLID, wireColor),
-        new RectangleImage(size, size, OutlineMode.SOLID, Color.DARK_GRAY));
-    WorldImage vWire = new RectangleImage(wireWidth, (size + 1) / 2, OutlineMode.SOLID, wireColor);
-    WorldImage hWire = new RectangleImage((size + 1) / 2, wireWidth, OutlineMode.SOLID, wireColor);
-
-    if (this.top) {
-      image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, 0, image);
-    }
-    if (this.right) {
-      image = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE, hWire, 0, 0, image);
-    }
-    if (this.bottom) {
-      image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM, vWire, 0, 0, image);
-    }
-    if (this.left) {
-      image = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE, hWire, 0, 0, image);
-    }
-    if (hasPowerStation) {
-      image = new OverlayImage(
-          new OverlayImage(new StarImage(size / 3, 7, OutlineMode.OUTLINE, new Color(255, 128, 0)),
-              new StarImage(size / 3, 7, OutlineMode.SOLID, new Color(0, 255, 255))),
-          image);
+    
+    // moving the station along a wire
+    if (this.engine.moveStation(key)) {
+      this.keep(MoveJournal.stationMove(LightEngine.wireOf(key)));
     }
-    return image;
-  }
-
-  // to rotate this tiles wires
-  void rotate() {
-    boolean originalLeft = this.left;
-    this.left = this.bottom;
-    this.bottom = this.right;
-    this.right = this.top;
-    this.top = originalLeft;
-  }
-
-  // does this title have a bottom?
-  boolean hasBottom() {
-    return this.bottom;
-  }
- 
-  //does this title have a top?
-  boolean hasTop() {
-    return this.top;
-  }
-
-  //does this title have a left?
-  boolean hasLeft() {
-    return this.left;
-  }
-
-  //does this title have a right?
-  boolean hasRight() {
-    return this.right;
-  }
-
-  // to place a powerStation at this tile
-  void placeStation() {
-    this.powerStation = true;
-  }
-  
-  // to place remove the powerStation at this tile
-  void removeStation() {
-    this.powerStation = false;
-  }
-
-  // to power on this tile
-  void powerOn() {
-    this.powered = true;
-  }
-
-  //to power off this tile
-  void powerOff() {
-    this.powered = false;
-  }
-}
-
-// to represent an edge 
-class Edge {
-  GamePiece fromNode;
-  GamePiece toNode;
-  int weight;
-
-  Edge(GamePiece fromNode, GamePiece toNode, int weight) {
-    this.fromNode = fromNode;
-    this.toNode = toNode;
-    this.weight = weight;
-  }
-}
-
-//comparator for sorting edges
-class EdgeSorting implements Comparator<Edge> {
-
-  // compares the weight of two edges 
-  public int compare(Edge e1, Edge e2) {
-    return e1.weight - e2.weight;
   }
 }
 
@@ -777,14 +392,15 @@ class ExamplesLight {
   // to run the game
   void testBigBang(Tester t) {
     LightEmAll world = new LightEmAll(7, 7);
-    int worldWidth = 70 * world.width;
-    int worldHeight = 70 * world.height + 80;
+    int worldWidth = world.viewport.pixelWidth;
+    int worldHeight = world.viewport.pixelHeight + 80;
     double tickRate = 1;
     world.bigBang(worldWidth, worldHeight, tickRate);
   }
 
   // 2 x 2 board
   LightEmAll l1;
+  KruskalGenerator k1;
   GamePiece g0;
   GamePiece g1;
   GamePiece g2;
@@ -800,6 +416,7 @@ class ExamplesLight {
   
   // 3 x 2 board
   LightEmAll l2;
+  KruskalGenerator k2;
   GamePiece g4;
   GamePiece g5;
   GamePiece g6;
@@ -817,6 +434,7 @@ class ExamplesLight {
   void init() {
   
     l1 = new LightEmAll(2, 2, new Random(5));
+    k1 = (KruskalGenerator) l1.engine.generator;
     g0 = l1.board.get(0).get(0);
     g1 = l1.board.get(0).get(1);
     g2 = l1.board.get(1).get(0);
@@ -825,6 +443,7 @@ class ExamplesLight {
     r1 = new ArrayList<GamePiece>(Arrays.asList(g2, g3));
     
     l2 = new LightEmAll(2, 3, new Random(6));
+    k2 = (KruskalGenerator) l2.engine.generator;
     g4 = l2.board.get(0).get(0);
     g5 = l2.board.get(0).get(1);
     g6 = l2.board.get(1).get(0);
@@ -835,10 +454,10 @@ class ExamplesLight {
     r3 = new ArrayList<GamePiece>(Arrays.asList(g6, g7));
     r4 = new ArrayList<GamePiece>(Arrays.asList(g8, g9));
     
-    e0 = l1.allEdges.get(0);
-    e1 = l1.allEdges.get(1);
-    e2 = l1.allEdges.get(1);
-    e3 = l1.allEdges.get(3);
+    e0 = k1.allEdges().get(0);
+    e1 = k1.allEdges().get(1);
+    e2 = k1.allEdges().get(1);
+    e3 = k1.allEdges().get(3);
     
   }
   
@@ -869,29 +488,29 @@ class ExamplesLight {
     init();
     
     // tiles initially
-    t.checkExpect(g0.top, false);
-    t.checkExpect(g0.bottom, true);
-    t.checkExpect(g0.left, true);
-    t.checkExpect(g0.right, false);
-    
-    t.checkExpect(g1.top, true);
-    t.checkExpect(g1.bottom, false);
-    t.checkExpect(g1.left, false);
-    t.checkExpect(g1.right, true);
+    t.checkExpect(g0.hasTop(), false);
+    t.checkExpect(g0.hasBottom(), true);
+    t.checkExpect(g0.hasLeft(), true);
+    t.checkExpect(g0.hasRight(), false);
+    
+    t.checkExpect(g1.hasTop(), true);
+    t.checkExpect(g1.hasBottom(), false);
+    t.checkExpect(g1.hasLeft(), false);
+    t.checkExpect(g1.hasRight(), true);
   
     // randomizing
-    l1.randomStart();
+    l1.engine.randomStart();
     
     // tiles change
-    t.checkExpect(g0.top, true);
-    t.checkExpect(g0.bottom, false);
-    t.checkExpect(g0.left, true);
-    t.checkExpect(g0.right, false);
+    t.checkExpect(g0.hasTop(), true);
+    t.checkExpect(g0.hasBottom(), false);
+    t.checkExpect(g0.hasLeft(), true);
+    t.checkExpect(g0.hasRight(), false);
     
-    t.checkExpect(g1.top, true);
-    t.checkExpect(g1.bottom, false);
-    t.checkExpect(g1.left, true);
-    t.checkExpect(g1.right, false);
+    t.checkExpect(g1.hasTop(), true);
+    t.checkExpect(g1.hasBottom(), false);
+    t.checkExpect(g1.hasLeft(), true);
+    t.checkExpect(g1.hasRight(), false);
     
   }
   
@@ -904,57 +523,113 @@ class ExamplesLight {
     Edge e0 = new Edge(g0, g1, 0);
     Edge e1 = new Edge(g1, g3, 0);
     Edge e2 = new Edge(g2, g0, 1);
-    t.checkExpect(l1.allEdges.size(), 8);
-    t.checkExpect(l1.mst.size(), 3);
+    t.checkExpect(k1.edgeCount, 8);
+    t.checkExpect(k1.treeCount, 3);
     
-    t.checkExpect(l1.mst, new ArrayList<Edge>(Arrays.asList(e0, e1, e2)));
+    t.checkExpect(k1.mst(), new ArrayList<Edge>(Arrays.asList(e0, e1, e2)));
     
     Edge e3 = new Edge(g4, g5, 0);
     Edge e4 = new Edge(g9, g7, 0);
     Edge e5 = new Edge(g4, g6, 1);
     Edge e6 = new Edge(g5, g7, 2);
     Edge e7 = new Edge(g8, g9, 2);
-    t.checkExpect(l2.allEdges.size(), 14);
-    t.checkExpect(l2.mst.size(), 5);
-    
-    t.checkExpect(l2.mst, new ArrayList<Edge>(Arrays.asList(e3, e4, e5, e6, e7)));
-    
+    t.checkExpect(k2.edgeCount, 14);
+    t.checkExpect(k2.treeCount, 5);
+    
+    t.checkExpect(k2.mst(), new ArrayList<Edge>(Arrays.asList(e3, e4, e5, e6, e7)));
+    
+    // kruskal stops once the tree has width * height - 1 edges
+    t.checkExpect(k1.edgesExamined, 3);
+    t.checkExpect(k2.edgesExamined, 7);
+    
+    // running it again with fresh representatives gives the same tree
+    k2.representatives = k2.setReps();
+    t.checkExpect(k2.kruskal(), 5);
+    t.checkExpect(k2.mst(), new ArrayList<Edge>(Arrays.asList(e3, e4, e5, e6, e7)));
+    t.checkExpect(k2.edgesExamined, 7);
+    
+    // with the groups already joined nothing is added,
+    // and every edge gets looked at
+    t.checkExpect(k2.kruskal(), 0);
+    t.checkExpect(k2.mst(), new ArrayList<Edge>());
+    t.checkExpect(k2.edgesExamined, 14);
   }
   
   // tests for the method setReps
   void testSetReps(Tester t) {
     init();
-    // manually setting representatives
-    HashMap<GamePiece, GamePiece> l1Rep = new HashMap<GamePiece, GamePiece>();
-    l1Rep.put(g0, g1);
-    l1Rep.put(g1, g3);
-    l1Rep.put(g2, g3);
-    l1Rep.put(g3, g3);
-    
-    HashMap<GamePiece, GamePiece> l2Rep = new HashMap<GamePiece, GamePiece>();
-    l2Rep.put(g4, g5);
-    l2Rep.put(g5, g6);
-    l2Rep.put(g6, g7);
-    l2Rep.put(g8, g7);
-    l2Rep.put(g9, g7);
-    l2Rep.put(g7, g7);
+    // after kruskal every tile is in one group
+    // indices are row * width + col
+    t.checkExpect(k1.representatives.parents, new int[] {1, 1, 1, 1});
+    t.checkExpect(k1.representatives.ranks, new int[] {0, 1, 0, 0});
+    t.checkExpect(k2.representatives.parents, new int[] {1, 3, 1, 3, 3, 3});
+    t.checkExpect(k2.representatives.ranks, new int[] {0, 1, 0, 2, 0, 0});
     
     // representatives are initialized with setReps
-    t.checkExpect(l1.representatives, l1Rep);
-    t.checkExpect(l2.representatives, l2Rep);
+    // every tile is its own representative
+    UnionFind fresh = k2.setReps();
+    t.checkExpect(fresh.parents, new int[] {0, 1, 2, 3, 4, 5});
+    t.checkExpect(fresh.ranks, new int[] {0, 0, 0, 0, 0, 0});
   }
   
   // tests for the methods find and union
   void testUnionFind(Tester t) {
     init();
     // representatives are intializes with the same parents
-    t.checkExpect(l2.find(g5), g7);
-    t.checkExpect(l2.find(g8), g7);
+    t.checkExpect(k2.find(g5), g7);
+    t.checkExpect(k2.find(g8), g7);
     
-    l2.union(g5, g8);
+    k2.union(g5, g8);
     
-    t.checkExpect(l2.find(g5), g7);
-    t.checkExpect(l2.find(g8), g7);
+    t.checkExpect(k2.find(g5), g7);
+    t.checkExpect(k2.find(g8), g7);
+    
+    // index of a tile is row * width + col
+    t.checkExpect(k2.indexOf(g4), 0);
+    t.checkExpect(k2.indexOf(g7), 3);
+    t.checkExpect(k2.indexOf(g9), 5);
+  }
+  
+  // tests for the class UnionFind
+  void testUnionFindArrays(Tester t) {
+    UnionFind uf = new UnionFind(5);
+    t.checkExpect(uf.find(3), 3);
+    
+    // joining two singletons, the second becomes the representative
+    t.checkExpect(uf.union(0, 1), true);
+    t.checkExpect(uf.find(0), 1);
+    t.checkExpect(uf.ranks[1], 1);
+    
+    // the smaller tree hangs under the taller one
+    t.checkExpect(uf.union(2, 0), true);
+    t.checkExpect(uf.find(2), 1);
+    t.checkExpect(uf.ranks[1], 1);
+    
+    // already in the same group
+    t.checkExpect(uf.union(2, 1), false);
+    
+    // path compression points tiles straight at the representative
+    uf.union(3, 4);
+    uf.union(1, 4);
+    t.checkExpect(uf.parents[0], 1);
+    t.checkExpect(uf.find(0), 4);
+    t.checkExpect(uf.parents[0], 4);
+    
+    // no recursion, so long chains are fine
+    UnionFind chain = new UnionFind(200000);
+    for (int i = 1; i < 200000; i++) {
+      chain.parents[i - 1] = i;
+    }
+    t.checkExpect(chain.find(0), 199999);
+    t.checkExpect(chain.parents[0], 199999);
+    
+    // resetting only the first tiles leaves the rest as they were
+    uf.reset(2);
+    t.checkExpect(uf.parents, new int[] {0, 1, 1, 4, 4});
+    t.checkExpect(uf.ranks, new int[] {0, 0, 0, 0, 2});
+    uf.reset();
+    t.checkExpect(uf.parents, new int[] {0, 1, 2, 3, 4});
+    t.checkExpect(uf.ranks, new int[] {0, 0, 0, 0, 0});
   }
   
   // tests for the method onTick
@@ -989,7 +664,16 @@ class ExamplesLight {
     
     // allEdges list is initialized with assignEdges
     // testing to see if edges are assigned
-    t.checkExpect(l1.allEdges, new ArrayList<Edge>(Arrays.asList(e0, e1, e2, e3, e4, e5, e6, e7)));
+    t.checkExpect(k1.allEdges(), new ArrayList<Edge>(Arrays.asList(e0, e1, e2, e3, e4, e5, e6, e7)));
+    
+    // edges are kept as the tile they start at and the side they leave by,
+    // in the order they were made in
+    t.checkExpect(KruskalGenerator.edgesFor(2, 2, "normal"), 8);
+    t.checkExpect(KruskalGenerator.edgesFor(6, 5, "horizontal"), 60);
+    t.checkExpect(KruskalGenerator.edgesFor(6, 1, "vertical"), 6);
+    t.checkExpect(k1.ends[0], 2);
+    t.checkExpect(k1.ends[1], 1);
+    t.checkExpect(k1.otherEnd(k1.ends[1]), 1);
   }
   
   // test for the method secondsAsString and minutesAsString
@@ -1019,18 +703,17 @@ class ExamplesLight {
     WorldImage clicks =  new TextImage("Rotations: 0", 25, FontStyle.BOLD, Color.DARK_GRAY);
     
     // drawing images using tileImage (provided to us)
-    WorldImage g0Image = g0.tileImage(70, 5, Color.red, true);
-    WorldImage g1Image = g1.tileImage(70, 5, Color.LIGHT_GRAY, false);
-    WorldImage g2Image = g2.tileImage(70, 5, Color.LIGHT_GRAY, false);
-    WorldImage g3Image = g3.tileImage(70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g0Image = TileImageCache.tileImage(g0, 70, 5, Color.red, true);
+    WorldImage g1Image = TileImageCache.tileImage(g1, 70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g2Image = TileImageCache.tileImage(g2, 70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g3Image = TileImageCache.tileImage(g3, 70, 5, Color.LIGHT_GRAY, false);
     
     // a regular scene with some powered tiles, 
     // regular tiles, and a power station
+    // drawn as one image of rows of tiles
     WorldScene w1 = new WorldScene(2, 2);
-    w1.placeImageXY(g0Image, 35, 35);
-    w1.placeImageXY(g1Image, 35, 105);
-    w1.placeImageXY(g2Image, 105, 35);
-    w1.placeImageXY(g3Image, 105, 105);
+    w1.placeImageXY(new AboveImage(new BesideImage(g0Image, g1Image),
+        new BesideImage(g2Image, g3Image)), 70, 70);
     w1.placeImageXY(clock, 120, 175);
     w1.placeImageXY(clicks, 20, 175);
     t.checkExpect(l1.makeScene(), w1);
@@ -1038,12 +721,12 @@ class ExamplesLight {
     // a winning scene
     init();
     // drawing images using tileImage
-    WorldImage g4Image = g4.tileImage(70, 5, Color.red, true);
-    WorldImage g5Image = g5.tileImage(70, 5, Color.LIGHT_GRAY, false);
-    WorldImage g6Image = g6.tileImage(70, 5, Color.LIGHT_GRAY, false);
-    WorldImage g7Image = g7.tileImage(70, 5, Color.LIGHT_GRAY, false);
-    WorldImage g8Image = g8.tileImage(70, 5, Color.LIGHT_GRAY, false);
-    WorldImage g9Image = g9.tileImage(70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g4Image = TileImageCache.tileImage(g4, 70, 5, Color.red, true);
+    WorldImage g5Image = TileImageCache.tileImage(g5, 70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g6Image = TileImageCache.tileImage(g6, 70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g7Image = TileImageCache.tileImage(g7, 70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g8Image = TileImageCache.tileImage(g8, 70, 5, Color.LIGHT_GRAY, false);
+    WorldImage g9Image = TileImageCache.tileImage(g9, 70, 5, Color.LIGHT_GRAY, false);
     WorldImage box = new RectangleImage(70, 60, OutlineMode.SOLID, Color.LIGHT_GRAY);
     WorldImage winText =  new AboveImage(new TextImage("YOU WIN!", 
         14, FontStyle.BOLD, Color.black), new AboveImage(new TextImage("Clicks: 0", 
@@ -1052,13 +735,10 @@ class ExamplesLight {
     WorldImage winBox = new OverlayImage(winText, box);
     
     WorldScene w2 = new WorldScene(2, 3);
-    l2.win = true;
-    w2.placeImageXY(g4Image, 35, 35);
-    w2.placeImageXY(g5Image, 35, 105);
-    w2.placeImageXY(g6Image, 35, 175);
-    w2.placeImageXY(g7Image, 105, 35);
-    w2.placeImageXY(g8Image, 105, 105);
-    w2.placeImageXY(g9Image, 105, 175);
+    l2.engine.win = true;
+    w2.placeImageXY(new AboveImage(new BesideImage(g4Image, g5Image),
+        new AboveImage(new BesideImage(g6Image, g7Image), new BesideImage(g8Image, g9Image))),
+        70, 105);
     // win text should show up
     w2.placeImageXY(winBox, 70, 105);
     w2.placeImageXY(clock, 120, 245);
@@ -1073,8 +753,10 @@ class ExamplesLight {
     // testing to see if board has rows in list
     // also testing to see if list contains the GamePieces that have boolean
     // values assigned to them (connectPieces)
-    return t.checkExpect(l1.board, new ArrayList<ArrayList<GamePiece>>(Arrays.asList(r0, r1)))
-        && t.checkExpect(l2.board, new ArrayList<ArrayList<GamePiece>>(Arrays.asList(r2, r3, r4)));
+    return t.checkExpect(l1.board,
+        new ArrayList<ArrayList<GamePiece>>(Arrays.asList(r0, r1)))
+        && t.checkExpect(l2.board,
+            new ArrayList<ArrayList<GamePiece>>(Arrays.asList(r2, r3, r4)));
 
   }
   
@@ -1101,34 +783,34 @@ class ExamplesLight {
     init();
     // right angle wire
     // wires prior
-    t.checkExpect(g9.left, true);
-    t.checkExpect(g9.bottom, true);
-    t.checkExpect(g9.right, false);
-    t.checkExpect(g9.top, false);
+    t.checkExpect(g9.hasLeft(), true);
+    t.checkExpect(g9.hasBottom(), true);
+    t.checkExpect(g9.hasRight(), false);
+    t.checkExpect(g9.hasTop(), false);
     
     l2.onMouseClicked(new Posn(70, 140));
     
     // wires after (top becomes original left and right left becomes bottom)
-    t.checkExpect(g9.left, true);
-    t.checkExpect(g9.bottom, false);
-    t.checkExpect(g9.right, false);
-    t.checkExpect(g9.top, true);
+    t.checkExpect(g9.hasLeft(), true);
+    t.checkExpect(g9.hasBottom(), false);
+    t.checkExpect(g9.hasRight(), false);
+    t.checkExpect(g9.hasTop(), true);
     
     // half top wire
     // wires prior
-    t.checkExpect(g6.left, false);
-    t.checkExpect(g6.bottom, false);
-    t.checkExpect(g6.right, false);
-    t.checkExpect(g6.top, true);
+    t.checkExpect(g6.hasLeft(), false);
+    t.checkExpect(g6.hasBottom(), false);
+    t.checkExpect(g6.hasRight(), false);
+    t.checkExpect(g6.hasTop(), true);
     
     l2.onMouseClicked(new Posn(0, 70));
     
     // wires after
     // top becomes ORIGINAL left value
-    t.checkExpect(g6.left, false);
-    t.checkExpect(g6.bottom, false);
-    t.checkExpect(g6.right, true);
-    t.checkExpect(g6.top, false);
+    t.checkExpect(g6.hasLeft(), false);
+    t.checkExpect(g6.hasBottom(), false);
+    t.checkExpect(g6.hasRight(), true);
+    t.checkExpect(g6.hasTop(), false);
   }
 
   // tests for the method onKeyEvent
@@ -1142,58 +824,62 @@ class ExamplesLight {
     l1.onMouseClicked(new Posn(0, 70));
     
     // moving down
-    t.checkExpect(l1.powerRow, 0);
-    t.checkExpect(l1.powerCol, 0);
+    t.checkExpect(l1.engine.powerRow, 0);
+    t.checkExpect(l1.engine.powerCol, 0);
     l1.onKeyEvent("down");
-    t.checkExpect(l1.powerCol, 0);
-    t.checkExpect(l1.powerRow, 1);
+    t.checkExpect(l1.engine.powerCol, 0);
+    t.checkExpect(l1.engine.powerRow, 1);
     
     // no connection constraint
     // (should not move right)
     l1.onKeyEvent("right");
     // stays in the same spot
-    t.checkExpect(l1.powerRow, 1);
-    t.checkExpect(l1.powerCol, 0);
+    t.checkExpect(l1.engine.powerRow, 1);
+    t.checkExpect(l1.engine.powerCol, 0);
     
     // trying to move down again
     // out of bounds constraint
     // (should stay in the same spot)
     l1.onKeyEvent("down");
-    t.checkExpect(l1.powerRow, 1);
-    t.checkExpect(l1.powerCol, 0);
+    t.checkExpect(l1.engine.powerRow, 1);
+    t.checkExpect(l1.engine.powerCol, 0);
     
     // rotating and then moving down 
-    t.checkExpect(l2.powerRow, 0);
-    t.checkExpect(l2.powerCol, 0);
+    t.checkExpect(l2.engine.powerRow, 0);
+    t.checkExpect(l2.engine.powerCol, 0);
     l2.onMouseClicked(new Posn(0, 0));
     l2.onKeyEvent("down");
-    t.checkExpect(l2.powerRow, 1);
+    t.checkExpect(l2.engine.powerRow, 1);
     
     // win constraint
     // (shouldn't move after winning game)
     init();
-    t.checkExpect(l2.powerRow, 0);
-    t.checkExpect(l2.powerCol, 0);
+    t.checkExpect(l2.engine.powerRow, 0);
+    t.checkExpect(l2.engine.powerCol, 0);
     
     // setting win to true
     // and making a connection to move right
     l2.onMouseClicked(new Posn(70, 0));
-    l2.win = true;
+    l2.engine.win = true;
     
     // trying to move station right
     l2.onKeyEvent("right");
     
     // still in the same place
-    t.checkExpect(l2.powerRow, 0);
-    t.checkExpect(l2.powerCol, 0);
+    t.checkExpect(l2.engine.powerRow, 0);
+    t.checkExpect(l2.engine.powerCol, 0);
     
     // restarting after winning
     ArrayList<GamePiece> l2Row = l2.board.get(1);
+    byte[] l2Cells = l2.engine.store.cells;
     t.checkExpect(l2.board.get(1), l2Row);
     // calls m1.restartGame
     l2.onKeyEvent("r");
-    // new row has been created, shows has restarted
-    t.checkExpect((l2.board.get(1) == l2Row), false);
+    // shows has restarted, in the same rows and tiles
+    t.checkExpect(l2.engine.win, false);
+    t.checkExpect(l2.engine.clicks, 0);
+    t.checkExpect(l2.board.get(1) == l2Row, true);
+    t.checkExpect(l2.engine.store.cells == l2Cells, true);
     
   }
  
@@ -1201,15 +887,15 @@ class ExamplesLight {
   void testLightEmUp(Tester t) {
     init();
     // making sure board starts with necessary wires powered
-    t.checkExpect(g4.powered, true);
+    t.checkExpect(g4.isPowered(), true);
     
     
     // (noting disconnected tiles)
-    t.checkExpect(g5.powered, false);
-    t.checkExpect(g6.powered, false);
-    t.checkExpect(g7.powered, false);
-    t.checkExpect(g8.powered, false);
-    t.checkExpect(g9.powered, false);
+    t.checkExpect(g5.isPowered(), false);
+    t.checkExpect(g6.isPowered(), false);
+    t.checkExpect(g7.isPowered(), false);
+    t.checkExpect(g8.isPowered(), false);
+    t.checkExpect(g9.isPowered(), false);
     
     // rotating disconnected tiles 
     // and making sure the BFS works
@@ -1220,41 +906,41 @@ class ExamplesLight {
     
     // connection made
     // g5, 7, 8, 9 should be lit
-    l2.lightEmUp();
-    t.checkExpect(g5.powered, true);
-    t.checkExpect(g7.powered, true);
-    t.checkExpect(g8.powered, true);
-    t.checkExpect(g9.powered, true);
+    l2.engine.lightEmUp();
+    t.checkExpect(g5.isPowered(), true);
+    t.checkExpect(g7.isPowered(), true);
+    t.checkExpect(g8.isPowered(), true);
+    t.checkExpect(g9.isPowered(), true);
     
     // checking if the BFS un-lights wires as well
     l2.onMouseClicked(new Posn(70, 70));
     
     // disconnected
     // g9 should be un-lit
-    l2.lightEmUp();
-    t.checkExpect(g7.powered, false);
-    t.checkExpect(g8.powered, false);
-    t.checkExpect(g9.powered, false);
+    l2.engine.lightEmUp();
+    t.checkExpect(g7.isPowered(), false);
+    t.checkExpect(g8.isPowered(), false);
+    t.checkExpect(g9.isPowered(), false);
     
     // connecting all 
     l2.onMouseClicked(new Posn(70, 70));
     l2.onMouseClicked(new Posn(0, 0));
     
     // everything should be powered
-    l2.lightEmUp();
-    t.checkExpect(g4.powered, true);
-    t.checkExpect(g5.powered, true);
-    t.checkExpect(g6.powered, true);
-    t.checkExpect(g7.powered, true);
-    t.checkExpect(g8.powered, true);
-    t.checkExpect(g4.powered, true);
-    t.checkExpect(g9.powered, true);
+    l2.engine.lightEmUp();
+    t.checkExpect(g4.isPowered(), true);
+    t.checkExpect(g5.isPowered(), true);
+    t.checkExpect(g6.isPowered(), true);
+    t.checkExpect(g7.isPowered(), true);
+    t.checkExpect(g8.isPowered(), true);
+    t.checkExpect(g4.isPowered(), true);
+    t.checkExpect(g9.isPowered(), true);
   }
 
   // tests for the method winCondition
   void testWinCondition(Tester t) {
     init();
-    t.checkExpect(l2.win, false);
+    t.checkExpect(l2.engine.win, false);
     
     // winning by making everything powered
     l2.onMouseClicked(new Posn(0, 0));
@@ -1262,21 +948,21 @@ class ExamplesLight {
     l2.onMouseClicked(new Posn(70, 70));
     l2.onMouseClicked(new Posn(70, 140));
     
-    l2.winCondition();
+    l2.engine.winCondition();
     
-    t.checkExpect(l2.win, true);
+    t.checkExpect(l2.engine.win, true);
     
     // making sure game isn't won when it shouldn't be
-    t.checkExpect(l1.win, false);
+    t.checkExpect(l1.engine.win, false);
     
     // not winning 
     l1.onMouseClicked(new Posn(0, 0));
     l1.onMouseClicked(new Posn(70, 70));
     l1.onMouseClicked(new Posn(0, 70));
     
-    l1.winCondition();
+    l1.engine.winCondition();
     
-    t.checkExpect(l1.win, false);
+    t.checkExpect(l1.engine.win, false);
     
   }
   
@@ -1297,34 +983,34 @@ class ExamplesLight {
     init();
     // right angle wire
     // wires prior
-    t.checkExpect(g9.left, true);
-    t.checkExpect(g9.bottom, true);
-    t.checkExpect(g9.right, false);
-    t.checkExpect(g9.top, false);
+    t.checkExpect(g9.hasLeft(), true);
+    t.checkExpect(g9.hasBottom(), true);
+    t.checkExpect(g9.hasRight(), false);
+    t.checkExpect(g9.hasTop(), false);
     
     g9.rotate();
     
     // wires after (top becomes original left and right left becomes bottom)
-    t.checkExpect(g9.left, true);
-    t.checkExpect(g9.bottom, false);
-    t.checkExpect(g9.right, false);
-    t.checkExpect(g9.top, true);
+    t.checkExpect(g9.hasLeft(), true);
+    t.checkExpect(g9.hasBottom(), false);
+    t.checkExpect(g9.hasRight(), false);
+    t.checkExpect(g9.hasTop(), true);
     
     // half top wire
     // wires prior
-    t.checkExpect(g6.left, false);
-    t.checkExpect(g6.bottom, false);
-    t.checkExpect(g6.right, false);
-    t.checkExpect(g6.top, true);
+    t.checkExpect(g6.hasLeft(), false);
+    t.checkExpect(g6.hasBottom(), false);
+    t.checkExpect(g6.hasRight(), false);
+    t.checkExpect(g6.hasTop(), true);
     
     g6.rotate();
     
     // wires after
     // top becomes ORIGINAL left value
-    t.checkExpect(g6.left, false);
-    t.checkExpect(g6.bottom, false);
-    t.checkExpect(g6.right, true);
-    t.checkExpect(g6.top, false);
+    t.checkExpect(g6.hasLeft(), false);
+    t.checkExpect(g6.hasBottom(), false);
+    t.checkExpect(g6.hasRight(), true);
+    t.checkExpect(g6.hasTop(), false);
   }
   
   // tests for the method hasX
@@ -1347,27 +1033,1778 @@ class ExamplesLight {
   void testxStation(Tester t) {
     init();
     // place
-    t.checkExpect(g1.powerStation, false);
+    t.checkExpect(g1.hasStation(), false);
     g1.placeStation();
-    t.checkExpect(g1.powerStation, true);
+    t.checkExpect(g1.hasStation(), true);
     
     // remove
-    t.checkExpect(g4.powerStation, true);
+    t.checkExpect(g4.hasStation(), true);
     g4.removeStation();
-    t.checkExpect(g4.powerStation, false);
+    t.checkExpect(g4.hasStation(), false);
   }
   
   // tests for the method powerX
   void testPowerX(Tester t) {
     init();
     // on
-    t.checkExpect(g8.powered, false);
+    t.checkExpect(g8.isPowered(), false);
     g8.powerOn();
-    t.checkExpect(g8.powered, true);
+    t.checkExpect(g8.isPowered(), true);
     
     // off
-    t.checkExpect(g0.powered, true);
+    t.checkExpect(g0.isPowered(), true);
     g0.powerOff();
-    t.checkExpect(g0.powered, false);
+    t.checkExpect(g0.isPowered(), false);
   } 
+  
+  /*  +----+----+
+   *  | 1  | 2  |
+   *  +----+----+
+   *  BoardStore Tests:
+   */
+  
+  // tests for the rotation table and the method opposite
+  void testStoreRotations(Tester t) {
+    // a right angle from top to right rotates to right to bottom
+    t.checkExpect(BoardStore.ROTATIONS[1][BoardStore.TOP | BoardStore.RIGHT],
+        BoardStore.RIGHT | BoardStore.BOTTOM);
+    // and back to where it started after four rotations
+    t.checkExpect(BoardStore.ROTATIONS[3][BoardStore.LEFT | BoardStore.TOP],
+        BoardStore.BOTTOM | BoardStore.LEFT);
+    t.checkExpect(BoardStore.ROTATIONS[0][BoardStore.LEFT], BoardStore.LEFT);
+    t.checkExpect(BoardStore.ROTATIONS[2][BoardStore.WIRES], BoardStore.WIRES);
+    
+    t.checkExpect(BoardStore.opposite(BoardStore.TOP), BoardStore.BOTTOM);
+    t.checkExpect(BoardStore.opposite(BoardStore.LEFT), BoardStore.RIGHT);
+  }
+  
+  // tests for the methods index, rowOf, colOf, inBounds and neighbor
+  void testStoreIndices(Tester t) {
+    BoardStore store = new BoardStore(3, 2);
+    t.checkExpect(store.size(), 6);
+    t.checkExpect(store.index(1, 2), 5);
+    t.checkExpect(store.rowOf(5), 1);
+    t.checkExpect(store.colOf(5), 2);
+    
+    // corners of the board
+    t.checkExpect(store.inBounds(0, BoardStore.TOP), false);
+    t.checkExpect(store.inBounds(0, BoardStore.LEFT), false);
+    t.checkExpect(store.inBounds(0, BoardStore.RIGHT), true);
+    t.checkExpect(store.inBounds(0, BoardStore.BOTTOM), true);
+    t.checkExpect(store.inBounds(5, BoardStore.BOTTOM), false);
+    t.checkExpect(store.inBounds(5, BoardStore.RIGHT), false);
+    t.checkExpect(store.inBounds(5, BoardStore.TOP), true);
+    
+    t.checkExpect(store.neighbor(4, BoardStore.TOP), 1);
+    t.checkExpect(store.neighbor(4, BoardStore.LEFT), 3);
+    t.checkExpect(store.neighbor(1, BoardStore.BOTTOM), 4);
+    t.checkExpect(store.neighbor(1, BoardStore.RIGHT), 2);
+  }
+  
+  // tests for the methods on the wires, power and station bits of a tile
+  void testStoreCells(Tester t) {
+    BoardStore store = new BoardStore(2, 1);
+    store.connect(0, BoardStore.RIGHT);
+    store.connect(0, BoardStore.TOP);
+    t.checkExpect(store.wires(0), BoardStore.RIGHT | BoardStore.TOP);
+    t.checkExpect(store.hasWire(0, BoardStore.TOP), true);
+    t.checkExpect(store.hasWire(0, BoardStore.LEFT), false);
+    
+    // only wired to each other when both wires face each other
+    t.checkExpect(store.connected(0, BoardStore.RIGHT), false);
+    store.setWires(1, BoardStore.LEFT);
+    t.checkExpect(store.connected(0, BoardStore.RIGHT), true);
+    t.checkExpect(store.connected(1, BoardStore.LEFT), true);
+    // wires off the edge of the board are never connected
+    t.checkExpect(store.connected(0, BoardStore.TOP), false);
+    
+    // power and station bits leave the wires alone
+    store.setPowered(1, true);
+    store.setStation(1, true);
+    t.checkExpect(store.isPowered(1), true);
+    t.checkExpect(store.hasStation(1), true);
+    t.checkExpect(store.wires(1), BoardStore.LEFT);
+    store.rotate(1, 3);
+    t.checkExpect(store.wires(1), BoardStore.BOTTOM);
+    t.checkExpect(store.isPowered(1), true);
+    
+    store.setPowered(0, true);
+    store.clearPower();
+    t.checkExpect(store.isPowered(0), false);
+    t.checkExpect(store.isPowered(1), false);
+    t.checkExpect(store.hasStation(1), true);
+    store.setStation(1, false);
+    t.checkExpect(store.cells[1], (byte) BoardStore.BOTTOM);
+  }
+  
+  /*  (*)---+---+
+   *  PowerEngine Tests:
+   */
+  
+  // tests for the method relightAll
+  void testRelightAll(Tester t) {
+    // a straight line of three tiles
+    BoardStore store = new BoardStore(3, 1);
+    store.setWires(0, BoardStore.RIGHT);
+    store.setWires(1, BoardStore.LEFT | BoardStore.RIGHT);
+    store.setWires(2, BoardStore.LEFT);
+    PowerEngine power = new PowerEngine(store);
+    t.checkExpect(power.parents, new int[] {-1, -1, -1});
+    
+    power.relightAll(0);
+    t.checkExpect(power.parents, new int[] {0, 0, 1});
+    t.checkExpect(store.isPowered(2), true);
+    t.checkExpect(power.poweredCount(), 3);
+    
+    // moving the station turns the tree around
+    power.relightAll(2);
+    t.checkExpect(power.parents, new int[] {1, 2, 2});
+    t.checkExpect(power.station, 2);
+  }
+  
+  // tests for the method rotate in PowerEngine
+  void testPowerRotate(Tester t) {
+    BoardStore store = new BoardStore(3, 1);
+    store.setWires(0, BoardStore.RIGHT);
+    store.setWires(1, BoardStore.LEFT | BoardStore.RIGHT);
+    store.setWires(2, BoardStore.LEFT);
+    PowerEngine power = new PowerEngine(store);
+    power.relightAll(0);
+    
+    // turning the middle tile cuts it and everything after it off
+    power.rotate(1);
+    t.checkExpect(store.wires(1), BoardStore.TOP | BoardStore.BOTTOM);
+    t.checkExpect(power.parents, new int[] {0, -1, -1});
+    t.checkExpect(store.isPowered(1), false);
+    t.checkExpect(store.isPowered(2), false);
+    t.checkExpect(power.poweredCount(), 1);
+    
+    // turning it back powers them again
+    power.rotate(1);
+    t.checkExpect(power.parents, new int[] {0, 0, 1});
+    t.checkExpect(store.isPowered(2), true);
+    
+    // a square of corners, where power can come around the other way
+    BoardStore square = new BoardStore(2, 2);
+    square.setWires(0, BoardStore.RIGHT | BoardStore.BOTTOM);
+    square.setWires(1, BoardStore.LEFT | BoardStore.BOTTOM);
+    square.setWires(2, BoardStore.TOP | BoardStore.RIGHT);
+    square.setWires(3, BoardStore.TOP | BoardStore.LEFT);
+    PowerEngine loop = new PowerEngine(square);
+    loop.relightAll(0);
+    t.checkExpect(loop.parents, new int[] {0, 0, 0, 1});
+    
+    // turning the top right corner cuts off the bottom right one,
+    // which gets power from the bottom left instead
+    loop.rotate(1);
+    t.checkExpect(square.wires(1), BoardStore.TOP | BoardStore.LEFT);
+    t.checkExpect(loop.parents, new int[] {0, 0, 0, 2});
+    t.checkExpect(square.isPowered(3), true);
+    
+    // turning it again loses the top right corner itself
+    loop.rotate(1);
+    t.checkExpect(loop.parents, new int[] {0, -1, 0, 2});
+    t.checkExpect(square.isPowered(1), false);
+  }
+  
+  // tests that rotating with PowerEngine matches powering the whole board again
+  void testPowerRotateMatchesRelight(Tester t) {
+    LightEmAll game = new LightEmAll(8, 8, new Random(3));
+    Random clicks = new Random(4);
+    boolean same = true;
+    for (int i = 0; i < 2000; i++) {
+      game.engine.power.rotate(clicks.nextInt(64));
+      byte[] incremental = game.engine.store.cells.clone();
+      int count = game.engine.poweredCount();
+      game.engine.lightEmUp();
+      same = same && Arrays.equals(incremental, game.engine.store.cells)
+          && count == game.engine.poweredCount();
+    }
+    t.checkExpect(same, true);
+  }
+  
+  // tests for the class BfsKernel
+  void testBfsKernel(Tester t) {
+    BfsKernel kernel = new BfsKernel(5);
+    // the ring is rounded up to a power of two
+    t.checkExpect(kernel.queue.length, 8);
+    t.checkExpect(kernel.isEmpty(), true);
+    
+    // tiles are only queued once
+    t.checkExpect(kernel.offer(3), true);
+    t.checkExpect(kernel.offer(4), true);
+    t.checkExpect(kernel.offer(3), false);
+    t.checkExpect(kernel.isVisited(3), true);
+    t.checkExpect(kernel.isVisited(0), false);
+    t.checkExpect(kernel.marked, 2);
+    t.checkExpect(kernel.poll(), 3);
+    t.checkExpect(kernel.markedAt(0), 3);
+    t.checkExpect(kernel.markedAt(1), 4);
+    
+    // reset forgets the marks
+    kernel.reset();
+    t.checkExpect(kernel.isEmpty(), true);
+    t.checkExpect(kernel.isVisited(3), false);
+    t.checkExpect(kernel.visited, new long[] {0});
+    
+    // positions wrap around the ring
+    for (int i = 0; i < 5; i++) {
+      kernel.offer(i);
+    }
+    t.checkExpect(kernel.tail, 7);
+    kernel.reset();
+    for (int i = 0; i < 5; i++) {
+      kernel.offer(i);
+    }
+    t.checkExpect(kernel.tail, 4);
+    t.checkExpect(kernel.markedAt(0), 0);
+    t.checkExpect(kernel.markedAt(4), 4);
+    t.checkExpect(kernel.poll(), 0);
+  }
+  
+  // tests for the method reach
+  void testReach(Tester t) {
+    init();
+    // only the station is lit on the starting 3 x 2 board
+    t.checkExpect(l2.engine.power.search.reach(l2.engine.store, 0), 1);
+    t.checkExpect(l2.engine.power.search.isVisited(0), true);
+    
+    // after rotating, g5, g7, g8 and g9 are wired to the station
+    t.checkExpect(l2.engine.power.search.reach(l2.engine.store, 1), 1);
+    l2.onMouseClicked(new Posn(70, 0));
+    l2.onMouseClicked(new Posn(70, 70));
+    l2.onMouseClicked(new Posn(70, 140));
+    t.checkExpect(l2.engine.power.search.reach(l2.engine.store, 5), 5);
+    t.checkExpect(l2.engine.power.search.isVisited(0), true);
+    t.checkExpect(l2.engine.power.search.isVisited(4), true);
+    // g6 is still on its own
+    t.checkExpect(l2.engine.power.search.isVisited(2), false);
+  }
+  
+  // tests for the methods poweredCount, tileCount, percentLit and allPowered
+  void testPoweredCount(Tester t) {
+    init();
+    // only the station is lit at the start
+    t.checkExpect(l2.engine.poweredCount(), 1);
+    t.checkExpect(l2.engine.power.tileCount(), 6);
+    t.checkExpect(l2.engine.power.percentLit(), 16);
+    t.checkExpect(l2.engine.power.allPowered(), false);
+    
+    l2.onMouseClicked(new Posn(70, 0));
+    l2.onMouseClicked(new Posn(70, 70));
+    l2.onMouseClicked(new Posn(70, 140));
+    t.checkExpect(l2.engine.poweredCount(), 5);
+    
+    // disconnecting the middle takes three tiles out
+    l2.onMouseClicked(new Posn(70, 70));
+    t.checkExpect(l2.engine.poweredCount(), 2);
+    
+    l2.onMouseClicked(new Posn(70, 70));
+    l2.onMouseClicked(new Posn(0, 0));
+    t.checkExpect(l2.engine.poweredCount(), 6);
+    t.checkExpect(l2.engine.power.percentLit(), 100);
+    t.checkExpect(l2.engine.power.allPowered(), true);
+    t.checkExpect(l2.engine.win, true);
+  }
+  
+  /*  +--+--+
+   *  |  |  |
+   *  +--+--+
+   *  BoruvkaGenerator Tests:
+   */
+  
+  // counts the wires on every tile of the given board
+  int wireEnds(BoardStore store) {
+    int ends = 0;
+    for (int i = 0; i < store.size(); i++) {
+      ends += Integer.bitCount(store.wires(i));
+    }
+    return ends;
+  }
+  
+  // tests for the method generate in BoruvkaGenerator
+  void testBoruvkaGenerate(Tester t) {
+    BoardStore store = new BoardStore(7, 5);
+    int rounds = new BoruvkaGenerator().generate(store, 42, "normal");
+    // a spanning tree, every tile is reachable with one less edge than tiles
+    t.checkExpect(new BfsKernel(35).reach(store, 0), 35);
+    t.checkExpect(this.wireEnds(store), 2 * 34);
+    // at least halves the groups every round
+    t.checkExpect(rounds <= 6, true);
+    
+    // the same seed gives the same board
+    BoardStore again = new BoardStore(7, 5);
+    new BoruvkaGenerator().generate(again, 42, "normal");
+    t.checkExpect(again.cells, store.cells);
+    
+    // and a different one gives a different board
+    BoardStore other = new BoardStore(7, 5);
+    new BoruvkaGenerator().generate(other, 43, "normal");
+    t.checkExpect(Arrays.equals(other.cells, store.cells), false);
+    
+    // a "horizontal" bias wires every column top to bottom
+    BoardStore columns = new BoardStore(6, 6);
+    new BoruvkaGenerator().generate(columns, 7, "horizontal");
+    boolean allDown = true;
+    for (int i = 0; i < 30; i++) {
+      allDown = allDown && columns.hasWire(i, BoardStore.BOTTOM);
+    }
+    t.checkExpect(allDown, true);
+    t.checkExpect(this.wireEnds(columns), 2 * 35);
+    
+    // a "vertical" bias wires every row left to right
+    BoardStore rows = new BoardStore(6, 6);
+    new BoruvkaGenerator().generate(rows, 7, "vertical");
+    boolean allRight = true;
+    for (int i = 0; i < 36; i++) {
+      allRight = allRight && (i % 6 == 5 || rows.hasWire(i, BoardStore.RIGHT));
+    }
+    t.checkExpect(allRight, true);
+  }
+  
+  // tests for the method key in BoruvkaGenerator
+  void testBoruvkaKey(Tester t) {
+    // ties are broken by the edge itself
+    t.checkExpect((int) BoruvkaGenerator.key(1, 0, 12), 12);
+    // edges against the bias always cost more
+    t.checkExpect(BoruvkaGenerator.against("normal"), 0);
+    t.checkExpect(BoruvkaGenerator.against("horizontal"), 1);
+    t.checkExpect(BoruvkaGenerator.against("vertical"), 2);
+    t.checkExpect(BoruvkaGenerator.key(1, 1, 12) > BoruvkaGenerator.key(1, 1, 13), true);
+    t.checkExpect(BoruvkaGenerator.key(1, 2, 12) < BoruvkaGenerator.key(1, 2, 13), true);
+    t.checkExpect(BoruvkaGenerator.key(5, 0, 12) < BoruvkaGenerator.NO_EDGE, true);
+  }
+  
+  // tests for the parallel game constructor
+  void testParallelConstructor(Tester t) {
+    LightEmAll game = new LightEmAll(9, 9, "normal", 11);
+    LightEmAll same = new LightEmAll(9, 9, "normal", 11);
+    t.checkExpect(game.engine.generator instanceof BoruvkaGenerator, true);
+    // the same seed gives the same scrambled board
+    t.checkExpect(game.engine.store.cells, same.engine.store.cells);
+    t.checkExpect(this.wireEnds(game.engine.store), 2 * 80);
+    t.checkExpect(game.engine.store.hasStation(0), true);
+    t.checkExpect(game.engine.store.isPowered(0), true);
+  }
+  
+  // is the given board wired up as a spanning tree?
+  boolean isSpanningTree(BoardStore store) {
+    return new BfsKernel(store.size()).reach(store, 0) == store.size()
+        && this.wireEnds(store) == 2 * (store.size() - 1);
+  }
+  
+  // counts the vertical wires of the given board
+  int verticalWires(BoardStore store) {
+    int count = 0;
+    for (int i = 0; i < store.size(); i++) {
+      if (store.hasWire(i, BoardStore.BOTTOM)) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+  
+  // tests for the method generate in every BoardGenerator
+  void testGenerators(Tester t) {
+    ArrayList<BoardGenerator> generators = new ArrayList<BoardGenerator>(Arrays.asList(
+        new KruskalGenerator(), new BoruvkaGenerator(), new PrimGenerator(),
+        new WilsonGenerator(), new DfsGenerator()));
+    for (BoardGenerator generator : generators) {
+      for (String bias : new String[] {"normal", "horizontal", "vertical"}) {
+        BoardStore store = new BoardStore(9, 6);
+        generator.generate(store, new Random(2), bias);
+        t.checkExpect(this.isSpanningTree(store), true);
+        
+        BoardStore line = new BoardStore(1, 4);
+        generator.generate(line, new Random(2), bias);
+        t.checkExpect(this.isSpanningTree(line), true);
+      }
+      
+      // a "horizontal" bias favors vertical wires, and "vertical" horizontal ones
+      BoardStore columns = new BoardStore(20, 20);
+      generator.generate(columns, new Random(3), "horizontal");
+      BoardStore rows = new BoardStore(20, 20);
+      generator.generate(rows, new Random(3), "vertical");
+      t.checkExpect(this.verticalWires(columns) > 250, true);
+      t.checkExpect(this.verticalWires(rows) < 150, true);
+    }
+  }
+  
+  // tests for the methods siftUp and siftDown in PrimGenerator
+  void testPrimHeap(Tester t) {
+    long[] heap = new long[6];
+    long[] keys = {5, 3, 8, 1, 9, 2};
+    for (int i = 0; i < keys.length; i++) {
+      heap[i] = keys[i];
+      PrimGenerator.siftUp(heap, i);
+    }
+    t.checkExpect(heap[0], 1L);
+    
+    // taking keys off the top gives them back smallest first
+    long[] taken = new long[6];
+    int count = 6;
+    for (int i = 0; i < 6; i++) {
+      taken[i] = heap[0];
+      count -= 1;
+      heap[0] = heap[count];
+      PrimGenerator.siftDown(heap, count, 0);
+    }
+    t.checkExpect(taken, new long[] {1, 2, 3, 5, 8, 9});
+  }
+  
+  // tests for the helpers in AGenerator
+  void testGeneratorHelpers(Tester t) {
+    t.checkExpect(AGenerator.isAgainst(BoardStore.LEFT, AGenerator.against("horizontal")), true);
+    t.checkExpect(AGenerator.isAgainst(BoardStore.TOP, AGenerator.against("horizontal")), false);
+    t.checkExpect(AGenerator.isAgainst(BoardStore.TOP, AGenerator.against("vertical")), true);
+    t.checkExpect(AGenerator.isAgainst(BoardStore.TOP, AGenerator.against("normal")), false);
+    
+    // only wires that were offered get picked
+    t.checkExpect(AGenerator.pickWire(new Random(1), BoardStore.LEFT, 0), BoardStore.LEFT);
+    t.checkOneOf(AGenerator.pickWire(new Random(1), BoardStore.LEFT | BoardStore.TOP, 1),
+        BoardStore.LEFT, BoardStore.TOP);
+    
+    BoardStore store = new BoardStore(3, 2);
+    t.checkExpect(AGenerator.onBoard(store, 0), BoardStore.RIGHT | BoardStore.BOTTOM);
+    t.checkExpect(AGenerator.onBoard(store, 4), BoardStore.LEFT | BoardStore.RIGHT
+        | BoardStore.TOP);
+    AGenerator.join(store, 4, BoardStore.TOP);
+    t.checkExpect(store.wires(4), BoardStore.TOP);
+    t.checkExpect(store.wires(1), BoardStore.BOTTOM);
+  }
+  
+  // tests for choosing the generator in the LightEmAll constructor
+  void testGeneratorConstructor(Tester t) {
+    LightEmAll prim = new LightEmAll(6, 5, "vertical", new Random(8), new PrimGenerator());
+    t.checkExpect(prim.engine.generator, new PrimGenerator());
+    t.checkExpect(this.wireEnds(prim.engine.store), 2 * 29);
+    t.checkExpect(prim.engine.store.isPowered(0), true);
+    
+    // restarting after winning uses the same generator
+    LightEmAll dfs = new LightEmAll(6, 5, "normal", new Random(8), new DfsGenerator());
+    dfs.engine.win = true;
+    dfs.onKeyEvent("r");
+    t.checkExpect(dfs.engine.generator, new DfsGenerator());
+    t.checkExpect(dfs.engine.win, false);
+    t.checkExpect(this.wireEnds(dfs.engine.store), 2 * 29);
+    
+    // games with no generator given are wired up by Boruvka's generator
+    t.checkExpect(new LightEmAll(6, 5).engine.generator instanceof BoruvkaGenerator, true);
+    LightEmAll columns = new LightEmAll(6, 5, "horizontal");
+    t.checkExpect(columns.engine.generator instanceof BoruvkaGenerator, true);
+    t.checkExpect(this.wireEnds(columns.engine.store), 2 * 29);
+  }
+  
+  // tests for the class TileImageCache
+  void testTileImageCache(Tester t) {
+    init();
+    TileImageCache cache = new TileImageCache(70, 5);
+    t.checkExpect(cache.images.length, 64);
+    
+    // the same image tileImage draws
+    t.checkExpect(cache.get(l2.engine.store.cells[0]),
+        TileImageCache.tileImage(g4, 70, 5, Color.red, true));
+    t.checkExpect(cache.get(l2.engine.store.cells[1]),
+        TileImageCache.tileImage(g5, 70, 5, Color.LIGHT_GRAY, false));
+    g5.powerOn();
+    t.checkExpect(cache.get(l2.engine.store.cells[1]),
+        TileImageCache.tileImage(g5, 70, 5, Color.red, false));
+    
+    // tiles that look the same share one image
+    t.checkExpect(cache.get(BoardStore.TOP) == cache.get(BoardStore.TOP), true);
+    t.checkExpect(cache.get(BoardStore.TOP),
+        TileImageCache.tileImage(BoardStore.TOP, 70, 5, Color.LIGHT_GRAY, false));
+    
+    // the board image is made from the cached images
+    byte[] cells = l2.engine.store.cells;
+    t.checkExpect(l2.renderer.image(), new AboveImage(
+        new BesideImage(cache.get(cells[0]), cache.get(cells[1])), new AboveImage(
+            new BesideImage(cache.get(cells[2]), cache.get(cells[3])),
+            new BesideImage(cache.get(cells[4]), cache.get(cells[5])))));
+  }
+  
+  // tests for the methods trackChanges and touch
+  void testTrackChanges(Tester t) {
+    BoardStore store = new BoardStore(3, 1);
+    // nothing is remembered until something is drawing the board
+    store.connect(0, BoardStore.RIGHT);
+    t.checkExpect(store.changed, null);
+    
+    store.trackChanges();
+    store.connect(1, BoardStore.LEFT);
+    store.setPowered(1, true);
+    store.rotate(2, 1);
+    // a tile changed twice is only remembered once
+    t.checkExpect(store.changed.marked, 2);
+    t.checkExpect(store.changed.markedAt(0), 1);
+    t.checkExpect(store.changed.markedAt(1), 2);
+    
+    // clearing power only changes tiles that were powered
+    store.changed.reset();
+    store.clearPower();
+    t.checkExpect(store.changed.marked, 1);
+    t.checkExpect(store.changed.markedAt(0), 1);
+  }
+  
+  // tests for the class BoardRenderer
+  void testBoardRenderer(Tester t) {
+    init();
+    WorldImage before = l2.renderer.image();
+    RenderNode top = l2.renderer.root.first;
+    WorldImage topBefore = top.image;
+    
+    // nothing changed, so nothing is drawn again
+    t.checkExpect(l2.renderer.update(), 0);
+    t.checkExpect(l2.renderer.image() == before, true);
+    
+    // rotating g9 only changes the bottom right tile
+    l2.onMouseClicked(new Posn(70, 140));
+    t.checkExpect(l2.engine.store.changed.marked, 1);
+    t.checkExpect(l2.renderer.update(), 1);
+    t.checkExpect(l2.renderer.root.dirty, false);
+    t.checkExpect(l2.renderer.image() == before, false);
+    // the top row is kept as it was
+    t.checkExpect(top.image == topBefore, true);
+    t.checkExpect(l2.renderer.root.second.second.second.image,
+        TileImageCache.tileImage(g9, 70, 5, Color.LIGHT_GRAY, false));
+    
+    // moving the station changes both tiles
+    l2.onMouseClicked(new Posn(0, 0));
+    l2.renderer.update();
+    l2.onKeyEvent("down");
+    t.checkExpect(l2.renderer.update() >= 2, true);
+    t.checkExpect(l2.renderer.root.second.first.first.image,
+        TileImageCache.tileImage(g6, 70, 5, Color.red, true));
+  }
+  
+  // tests for the class RenderNode
+  void testRenderNode(Tester t) {
+    RenderNode node = new RenderNode(0, 3, 0, 2);
+    // rows are split first, then columns
+    t.checkExpect(node.stacked, true);
+    t.checkExpect(node.first.row1, 1);
+    t.checkExpect(node.first.stacked, false);
+    t.checkExpect(node.first.first.first, null);
+    t.checkExpect(node.second.contains(2, 1), true);
+    t.checkExpect(node.second.contains(0, 1), false);
+    
+    // only the path down to the tile is marked
+    node.dirty = false;
+    node.first.dirty = false;
+    node.second.dirty = false;
+    node.markDirty(0, 1);
+    t.checkExpect(node.dirty, true);
+    t.checkExpect(node.first.dirty, true);
+    t.checkExpect(node.second.dirty, false);
+  }
+  
+  // tests for the class Viewport
+  void testViewport(Tester t) {
+    // small boards are shown whole at 70 pixels a tile
+    Viewport small = new Viewport(2, 3);
+    t.checkExpect(small.pixelWidth, 140);
+    t.checkExpect(small.pixelHeight, 210);
+    t.checkExpect(small.tileSize, 70);
+    t.checkExpect(small.rows, 3);
+    t.checkExpect(small.cols, 2);
+    // nowhere to move to
+    t.checkExpect(small.onKey("s"), false);
+    t.checkExpect(small.onKey("x"), false);
+    
+    // big boards only show what fits in the window
+    Viewport big = new Viewport(500, 400);
+    t.checkExpect(big.pixelWidth, 980);
+    t.checkExpect(big.pixelHeight, 700);
+    t.checkExpect(big.rows, 10);
+    t.checkExpect(big.cols, 14);
+    t.checkExpect(big.onKey("a"), false);
+    t.checkExpect(big.onKey("d"), true);
+    t.checkExpect(big.col0, 3);
+    t.checkExpect(big.onKey("s"), true);
+    t.checkExpect(big.row0, 2);
+    t.checkExpect(big.onKey("w"), true);
+    t.checkExpect(big.row0, 0);
+    // never past the edges
+    big.moveTo(1000, 1000);
+    t.checkExpect(big.row0, 390);
+    t.checkExpect(big.col0, 486);
+    
+    // zooming keeps the middle tile in the middle
+    big.moveTo(100, 100);
+    t.checkExpect(big.onKey("-"), true);
+    t.checkExpect(big.tileSize, 50);
+    t.checkExpect(big.rows, 14);
+    t.checkExpect(big.cols, 19);
+    t.checkExpect(big.row0 + big.rows / 2, 105);
+    t.checkExpect(big.col0 + big.cols / 2, 107);
+    t.checkExpect(big.tileImages().size, 50);
+    t.checkExpect(big.tileImages().wireWidth, 3);
+    t.checkExpect(big.tileImages() == big.tileImages(), true);
+    for (int i = 0; i < 10; i++) {
+      big.onKey("=");
+    }
+    t.checkExpect(big.tileSize, 140);
+    t.checkExpect(big.onKey("="), false);
+  }
+  
+  // tests for the method tileAt
+  void testTileAt(Tester t) {
+    Viewport view = new Viewport(500, 400);
+    t.checkExpect(view.tileAt(0, 0), 0);
+    t.checkExpect(view.tileAt(75, 145), 2 * 500 + 1);
+    t.checkExpect(view.tileAt(-1, 5), -1);
+    t.checkExpect(view.tileAt(980, 5), -1);
+    t.checkExpect(view.tileAt(5, 700), -1);
+    // in viewport coordinates
+    view.moveTo(20, 30);
+    t.checkExpect(view.tileAt(75, 145), 22 * 500 + 31);
+  }
+  
+  // tests for panning and zooming a game
+  void testPanAndZoom(Tester t) {
+    LightEmAll big = new LightEmAll(40, 30, new Random(3));
+    WorldImage first = big.renderer.image();
+    t.checkExpect(big.renderer.root.row1, 10);
+    t.checkExpect(big.renderer.root.col1, 14);
+    
+    // the board image only covers the visible tiles
+    big.onKeyEvent("d");
+    t.checkExpect(big.renderer.root.col0, 3);
+    t.checkExpect(big.renderer.root.col1, 17);
+    t.checkExpect(big.renderer.image() == first, false);
+    
+    // clicking a tile rotates the tile shown there
+    int wires = big.engine.store.wires(3);
+    big.onMouseClicked(new Posn(10, 10));
+    t.checkExpect(big.engine.store.wires(3), BoardStore.ROTATIONS[1][wires]);
+    
+    // tiles out of view are not drawn
+    big.onKeyEvent("a");
+    big.renderer.image();
+    big.engine.power.rotate(big.engine.store.index(29, 39));
+    t.checkExpect(big.engine.store.changed.marked, 1);
+    t.checkExpect(big.renderer.update(), 0);
+    t.checkExpect(big.renderer.root.dirty, false);
+    
+    // zooming draws with smaller tiles
+    big.onKeyEvent("-");
+    t.checkExpect(big.renderer.tileImages.size, 50);
+    t.checkExpect(big.renderer.root.row1 - big.renderer.root.row0, 14);
+  }
+  
+  // tests for the class LightEngine
+  void testLightEngine(Tester t) {
+    // the same board the game makes, with nothing drawn
+    LightEngine engine = new LightEngine(2, 3, "normal", new Random(6), new KruskalGenerator());
+    init();
+    t.checkExpect(engine.store.cells, l2.engine.store.cells);
+    t.checkExpect(engine.poweredCount(), l2.engine.poweredCount());
+    t.checkExpect(engine.isPowered(0, 0), true);
+    t.checkExpect(engine.store.changed, null);
+    
+    // rotating a tile counts a click
+    int wires = engine.store.wires(engine.store.index(2, 1));
+    t.checkExpect(engine.rotate(2, 1), true);
+    t.checkExpect(engine.store.wires(engine.store.index(2, 1)), BoardStore.ROTATIONS[1][wires]);
+    t.checkExpect(engine.clicks, 1);
+    // but not off the board
+    t.checkExpect(engine.rotate(3, 0), false);
+    t.checkExpect(engine.rotate(0, -1), false);
+    t.checkExpect(engine.clicks, 1);
+    
+    // the station only moves along connected wires
+    t.checkExpect(engine.moveStation("left"), false);
+    t.checkExpect(engine.moveStation("sideways"), false);
+    engine.rotate(0, 0);
+    t.checkExpect(engine.moveStation("down"), true);
+    t.checkExpect(engine.powerRow, 1);
+    t.checkExpect(engine.store.hasStation(engine.store.index(1, 0)), true);
+    t.checkExpect(engine.store.hasStation(0), false);
+    t.checkExpect(engine.isPowered(1, 0), true);
+    
+    // nothing changes once won
+    engine.win = true;
+    t.checkExpect(engine.rotate(0, 0), false);
+    t.checkExpect(engine.moveStation("up"), false);
+    
+    // a new board on restart
+    engine.restart(new Random(6));
+    t.checkExpect(engine.win, false);
+    t.checkExpect(engine.clicks, 0);
+    t.checkExpect(engine.powerRow, 0);
+    t.checkExpect(engine.store.cells, new LightEngine(2, 3, "normal", new Random(6),
+        new KruskalGenerator()).store.cells);
+  }
+  
+  // tests for the methods solve and countSolutions in BoardSolver
+  void testBoardSolver(Tester t) {
+    // the rotations undo the scrambling of boards from every generator
+    ArrayList<BoardGenerator> generators = new ArrayList<BoardGenerator>(Arrays.asList(
+        new KruskalGenerator(), new BoruvkaGenerator(), new PrimGenerator(),
+        new WilsonGenerator(), new DfsGenerator()));
+    for (BoardGenerator generator : generators) {
+      LightEngine engine = new LightEngine(8, 6, "normal", new Random(4), generator);
+      int[] rotations = new BoardSolver(engine.store).solve();
+      for (int i = 0; i < rotations.length; i++) {
+        engine.store.rotate(i, rotations[i]);
+      }
+      engine.lightEmUp();
+      t.checkExpect(engine.power.allPowered(), true);
+      t.checkExpect(this.isSpanningTree(engine.store), true);
+    }
+    
+    // boards with loops in them are solved too
+    BoardStore ring = new BoardStore(2, 2);
+    for (int i = 0; i < 4; i++) {
+      ring.setWires(i, BoardStore.TOP | BoardStore.RIGHT);
+    }
+    t.checkExpect(new BoardSolver(ring).solve(), new int[] {1, 2, 0, 3});
+    
+    // a board with one solution, and one that can be solved two ways
+    LightEngine one = new LightEngine(5, 5, "normal", new Random(0), new KruskalGenerator());
+    t.checkExpect(new BoardSolver(one.store).countSolutions(2), 1);
+    LightEngine two = new LightEngine(5, 5, "normal", new Random(12), new KruskalGenerator());
+    t.checkExpect(new BoardSolver(two.store).countSolutions(2), 2);
+    t.checkExpect(new BoardSolver(two.store).countSolutions(1), 1);
+    
+    // a wire with nothing to meet, and tiles that can't all be connected
+    BoardStore odd = new BoardStore(2, 1);
+    odd.setWires(0, BoardStore.RIGHT);
+    t.checkExpect(new BoardSolver(odd).solve(), null);
+    t.checkExpect(new BoardSolver(odd).countSolutions(2), 0);
+    BoardStore apart = new BoardStore(4, 1);
+    for (int i = 0; i < 4; i++) {
+      apart.setWires(i, BoardStore.LEFT);
+    }
+    t.checkExpect(new BoardSolver(apart).solve(), null);
+    
+    // the same solutions however many threads search the parts
+    for (int threads = 1; threads <= 4; threads++) {
+      BoardSolver solver = new BoardSolver(two.store, threads);
+      t.checkExpect(solver.threads, threads);
+      t.checkExpect(solver.countSolutions(2), 2);
+      BoardSolver big = new BoardSolver(new LightEngine(30, 30, "normal", new Random(8),
+          new BoruvkaGenerator()).store, threads);
+      BoardStore solved = new BoardStore(30, 30);
+      solved.cells = big.store.cells.clone();
+      int[] rotations = big.solve();
+      for (int i = 0; i < rotations.length; i++) {
+        solved.rotate(i, rotations[i]);
+      }
+      t.checkExpect(this.isSpanningTree(solved), true);
+      t.checkExpect(big.parts.size() > 1, true);
+    }
+    t.checkExpect(new BoardSolver(two.store).threads,
+        Runtime.getRuntime().availableProcessors());
+  }
+  
+  // tests for the class SolverState
+  void testSolverState(Tester t) {
+    LightEngine engine = new LightEngine(5, 5, "normal", new Random(12), new KruskalGenerator());
+    SolverState state = new SolverState(engine.store);
+    t.checkExpect(state.tree, true);
+    t.checkExpect(state.failed, false);
+    // no wires go off the board
+    t.checkExpect(state.open[0], 2);
+    t.checkExpect(state.known[0], (byte) (BoardStore.TOP | BoardStore.LEFT));
+    t.checkExpect(state.open[6], 4);
+    t.checkExpect(state.edge(6, BoardStore.LEFT), state.edge(5, BoardStore.RIGHT));
+    t.checkExpect(state.edge(6, BoardStore.TOP), state.edge(1, BoardStore.BOTTOM));
+    
+    // narrowing down leaves the tiles that need a guess
+    t.checkExpect(state.propagate(), true);
+    int tile = state.nextUndecided(0);
+    t.checkExpect(tile >= 0, true);
+    t.checkExpect(state.undecided(tile), true);
+    
+    // a guess is undone back to the trail it was made on
+    byte[] domains = state.domains.clone();
+    byte[] known = state.known.clone();
+    int[] parents = state.parents.clone();
+    int[] open = state.open.clone();
+    int mark = state.trailSize;
+    state.guess(tile, Integer.numberOfTrailingZeros(state.domains[tile]));
+    state.propagate();
+    t.checkExpect(state.undecided(tile), false);
+    state.undo(mark);
+    t.checkExpect(state.domains, domains);
+    t.checkExpect(state.known, known);
+    t.checkExpect(state.parents, parents);
+    t.checkExpect(state.open, open);
+    t.checkExpect(state.failed, false);
+    
+    // a copy guesses on its own
+    SolverState copy = new SolverState(state);
+    copy.guess(tile, Integer.numberOfTrailingZeros(copy.domains[tile]));
+    copy.propagate();
+    t.checkExpect(state.domains, domains);
+    
+    // every undecided tile is in one part, in order, and nothing stays marked
+    int[] tiles = new int[25];
+    for (int i = 0; i < 25; i++) {
+      tiles[i] = i;
+    }
+    ArrayList<int[]> parts = state.split(tiles, 0);
+    int[] partOf = new int[25];
+    Arrays.fill(partOf, -1);
+    for (int p = 0; p < parts.size(); p++) {
+      for (int k = 0; k < parts.get(p).length; k++) {
+        t.checkExpect(partOf[parts.get(p)[k]], -1);
+        t.checkExpect(k == 0 || parts.get(p)[k - 1] < parts.get(p)[k], true);
+        partOf[parts.get(p)[k]] = p;
+      }
+      t.checkExpect(p == 0 || parts.get(p - 1).length >= parts.get(p).length, true);
+    }
+    for (int i = 0; i < 25; i++) {
+      t.checkExpect(partOf[i] >= 0, state.undecided(i));
+      t.checkExpect(state.clusterOf[i], -1);
+      t.checkExpect(state.groupOf[i], -1);
+    }
+    // tiles before the given place aren't split
+    t.checkExpect(state.split(tiles, 25), new ArrayList<int[]>());
+    
+    // a wall of wires known not to be there leaves the two sides with
+    // no way to be connected
+    SolverState walled = new SolverState(engine.store);
+    for (int row = 0; row < 5; row++) {
+      walled.settle(row * 5 + 1, BoardStore.RIGHT, false);
+    }
+    t.checkExpect(walled.failed, false);
+    t.checkExpect(walled.split(tiles, 0), null);
+  }
+  
+  // tests for the methods make and run in PuzzleBatch
+  void testPuzzleBatch(Tester t) throws InterruptedException {
+    PuzzleBatch batch = new PuzzleBatch(5, 5, "normal", 7, KruskalGenerator::new);
+    batch.threads = 3;
+    batch.capacity = 2;
+    ArrayList<Puzzle> puzzles = new ArrayList<Puzzle>();
+    batch.run(6, puzzle -> puzzles.add(puzzle));
+    t.checkExpect(puzzles.size(), 6);
+    boolean[] seen = new boolean[6];
+    for (Puzzle puzzle : puzzles) {
+      seen[puzzle.index] = true;
+      // every puzzle can be solved one way, by its rotations
+      t.checkExpect(new BoardSolver(puzzle.store()).countSolutions(2), 1);
+      BoardStore solved = puzzle.store();
+      for (int i = 0; i < solved.size(); i++) {
+        solved.rotate(i, puzzle.rotations[i]);
+      }
+      t.checkExpect(this.isSpanningTree(solved), true);
+      t.checkExpect(puzzle.turned() * 2 >= 25, true);
+      // and is the same however many threads made it
+      Puzzle again = batch.make(puzzle.index);
+      t.checkExpect(again.seed, puzzle.seed);
+      t.checkExpect(again.wires, puzzle.wires);
+    }
+    t.checkExpect(seen, new boolean[] {true, true, true, true, true, true});
+    
+    // every puzzle and every try gets its own seed
+    t.checkExpect(batch.seedOf(0, 0) == batch.seedOf(1, 0), false);
+    t.checkExpect(batch.seedOf(0, 0) == batch.seedOf(0, 1), false);
+    t.checkExpect(batch.seedOf(2, 3), batch.seedOf(2, 3));
+    
+    // a board too small to scramble is never good enough
+    PuzzleBatch tiny = new PuzzleBatch(1, 1, "normal", 7, KruskalGenerator::new);
+    t.checkException(new IllegalStateException("No board with one solution in 1000 tries"),
+        tiny, "make", 0);
+  }
+  
+  // tests for the class Puzzle
+  void testPuzzle(Tester t) {
+    // a line of three tiles, the middle one needing a turn
+    BoardStore store = new BoardStore(3, 1);
+    store.setWires(0, BoardStore.RIGHT);
+    store.setWires(1, BoardStore.TOP | BoardStore.BOTTOM);
+    store.setWires(2, BoardStore.TOP);
+    Puzzle puzzle = new Puzzle(4, 9, "normal", store, new int[] {0, 1, 3});
+    t.checkExpect(puzzle.wires, new byte[] {2, 5, 1});
+    t.checkExpect(puzzle.solved(), new byte[] {2, 10, 8});
+    t.checkExpect(puzzle.turned(), 2);
+    t.checkExpect(puzzle.clicks(), 4);
+    t.checkExpect(puzzle.store().cells, new byte[] {2, 5, 1});
+    t.checkExpect(puzzle.toString(), "puzzle 4 3x1 normal seed 9 clicks 4"
+        + System.lineSeparator() + "251" + System.lineSeparator());
+  }
+  
+  // tests for the classes BoardFile and BoardRecord
+  void testBoardFile(Tester t) throws IOException {
+    // a game part way through, with the station moved, and a puzzle
+    LightEngine engine = new LightEngine(5, 3, "vertical", new Random(3), new KruskalGenerator());
+    engine.rotate(0, 0);
+    engine.moveStation("down");
+    BoardRecord game = new BoardRecord(engine, 3);
+    BoardRecord line = new BoardRecord(new Puzzle(0, 9, 3, 1, "normal", new byte[] {2, 5, 1},
+        new int[] {0, 1, 3}));
+    
+    Path path = Files.createTempFile("boards", ".lea");
+    BoardFile.write(path, Arrays.asList(game, line));
+    t.checkExpect(Files.size(path), 12 + 16 + game.bytes() + line.bytes());
+    try (BoardFile file = new BoardFile(path)) {
+      t.checkExpect(file.count, 2);
+      BoardRecord loaded = file.get(1);
+      t.checkExpect(loaded.width, 3);
+      t.checkExpect(loaded.height, 1);
+      t.checkExpect(loaded.bias, "normal");
+      t.checkExpect(loaded.seed, 9L);
+      t.checkExpect(loaded.stationRow, 0);
+      t.checkExpect(loaded.wires(1), 5);
+      t.checkExpect(loaded.solvedWires(1), 10);
+      t.checkExpect(loaded.solved(), new byte[] {2, 10, 8});
+      
+      // the game comes back as it was saved, but with no clicks
+      LightEngine again = new LightEngine(file.get(0), new KruskalGenerator());
+      t.checkExpect(again.store.cells, engine.store.cells);
+      t.checkExpect(again.solved, engine.solved);
+      t.checkExpect(again.powerRow, engine.powerRow);
+      t.checkExpect(again.bias, "vertical");
+      t.checkExpect(again.poweredCount(), engine.poweredCount());
+      t.checkExpect(again.clicks, 0);
+      t.checkExpect(new LightEmAll(file.get(0)).engine.store.cells, engine.store.cells);
+      t.checkExpect(new LightEmAll(file.get(0)).engine.generator instanceof BoruvkaGenerator,
+          true);
+      
+      t.checkException(new IndexOutOfBoundsException("No board 2 in a file of 2"),
+          file, "get", 2);
+      t.checkException(new IOException("Not a board file"), file, "checkHeader",
+          ByteBuffer.allocate(12), 12L);
+      t.checkException(new IOException("Unsupported board file version 2"), file,
+          "checkHeader", ByteBuffer.allocate(12).putInt(BoardFile.MAGIC).putInt(2), 12L);
+      // an index that doesn't fit in the file is found before it is mapped
+      ByteBuffer header = ByteBuffer.allocate(12).putInt(BoardFile.MAGIC)
+          .putInt(BoardFile.VERSION).putInt(2);
+      t.checkExpect(BoardFile.checkHeader(header, 28), 2);
+      t.checkException(new IOException("Board file can't hold 2 boards"), file,
+          "checkHeader", header, 27L);
+      t.checkException(new IOException("Board file can't hold -1 boards"), file,
+          "checkHeader", header.putInt(8, -1), Files.size(path));
+    }
+    
+    // boards that can't be played are found when read, the first one
+    // starting right after the header and the index
+    t.checkException(new IOException("Board has no tiles, or too many: -5x3"),
+        this.corrupt(path, 28, -5), "get", 0);
+    t.checkException(new IOException("Station is off the board at 3, 0"),
+        this.corrupt(path, 28 + 16, 3), "get", 0);
+    t.checkException(new IOException("Board is cut short"),
+        this.corrupt(path, 28 + 4, 300), "get", 0);
+    // the first tile now, and once solved, have different numbers of wires,
+    // which is only found once the board is loaded into a game
+    BoardFile wrong = this.corrupt(path, 28 + 34, 0xFFFFFFFF);
+    BoardRecord unwinnable = wrong.get(0);
+    LightEngine playing = new LightEngine(5, 3, "vertical", new Random(3),
+        new KruskalGenerator());
+    byte[] cells = playing.store.cells.clone();
+    t.checkException(new IllegalArgumentException("Tile 0 can't be turned to its solved wires"),
+        playing, "load", unwinnable);
+    t.checkExpect(playing.store.cells, cells);
+    wrong.close();
+    BoardFile.write(path, Arrays.asList(game));
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      out.write(ByteBuffer.allocate(8).putLong(0, 1 << 20), 12);
+    }
+    try (BoardFile file = new BoardFile(path)) {
+      t.checkException(new IOException("Board 0 is not where the index says"), file, "get", 0);
+    }
+    Files.delete(path);
+  }
+  
+  // to write the given int at the given position of a fresh copy of the board
+  // file at the given path, and open it
+  BoardFile corrupt(Path path, long position, int value) throws IOException {
+    Path copy = Files.createTempFile("corrupt", ".lea");
+    Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+    try (FileChannel out = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+      out.write(ByteBuffer.allocate(4).putInt(0, value), position);
+    }
+    copy.toFile().deleteOnExit();
+    return new BoardFile(copy);
+  }
+  
+  // tests for the methods pack and unpack in BoardRecord
+  void testPackWires(Tester t) {
+    t.checkExpect(BoardRecord.pack(new byte[] {1, 15, 4}), new byte[] {0x1F, 0x40});
+    t.checkExpect(BoardRecord.packedSize(3), 2);
+    t.checkExpect(BoardRecord.packedSize(4), 2);
+    ByteBuffer packed = ByteBuffer.wrap(new byte[] {(byte) 0xA5, 0x30});
+    t.checkExpect(BoardRecord.unpack(packed, 0), 10);
+    t.checkExpect(BoardRecord.unpack(packed, 1), 5);
+    t.checkExpect(BoardRecord.unpack(packed, 2), 3);
+    
+    // the wires of the game as it was wired up, which solve it
+    init();
+    t.checkExpect(this.isSpanningTree(this.solvedStore(l2.engine)), true);
+    BoardStore store = new BoardStore(2, 1);
+    store.setWires(0, BoardStore.RIGHT);
+    store.setWires(1, BoardStore.LEFT);
+    t.checkExpect(BoardRecord.pack(store), new byte[] {0x28});
+  }
+  
+  // to get a store with the wires of the given game as it was wired up
+  BoardStore solvedStore(LightEngine engine) {
+    BoardStore store = new BoardStore(engine.width, engine.height);
+    for (int i = 0; i < store.size(); i++) {
+      store.setWires(i, engine.solved[i]);
+    }
+    return store;
+  }
+  
+  // tests for the class MoveJournal
+  void testMoveJournal(Tester t) throws IOException {
+    Path path = Files.createTempFile("game", ".lej");
+    MoveJournal journal = MoveJournal.create(path, 4, 3, "normal", 8);
+    LightEmAll game = new LightEmAll(journal);
+    t.checkExpect(game.engine.store.cells,
+        new LightEmAll(4, 3, "normal", 8).engine.store.cells);
+    
+    // clicks and station moves are kept, anything that does nothing isn't
+    game.onMouseClicked(new Posn(105, 35));
+    game.onMouseClicked(new Posn(105, 35));
+    game.onMouseClicked(new Posn(35, 175));
+    game.onMouseClicked(new Posn(1000, 1000));
+    game.onKeyEvent("sideways");
+    for (String key : new String[] {"down", "right", "up", "left"}) {
+      // turning the station's tile, and the one next to it, until they connect
+      int wire = LightEngine.wireOf(key);
+      int station = game.engine.store.index(game.engine.powerRow, game.engine.powerCol);
+      int next = game.engine.store.neighbor(station, wire);
+      for (int k = 0; k < 16 && !game.engine.store.connected(station, wire); k++) {
+        game.onMouseClicked(new Posn(35 + game.engine.store.colOf(station) * 70,
+            35 + game.engine.store.rowOf(station) * 70));
+        if (k % 4 == 3) {
+          game.onMouseClicked(new Posn(35 + game.engine.store.colOf(next) * 70,
+              35 + game.engine.store.rowOf(next) * 70));
+        }
+      }
+      game.onKeyEvent(key);
+    }
+    journal.flush();
+    int[] moves = journal.moves();
+    t.checkExpect(moves[0], MoveJournal.rotation(1));
+    t.checkExpect(moves[1], MoveJournal.rotation(1));
+    t.checkExpect(moves[2], MoveJournal.rotation(8));
+    t.checkExpect(this.stationMoves(moves) > 0, true);
+    t.checkExpect(journal.written, (long) game.engine.clicks + this.stationMoves(moves));
+    journal.close();
+    
+    // the game comes back from the seed and the moves
+    MoveJournal reopened = MoveJournal.open(path);
+    LightEngine restored = reopened.restore();
+    t.checkExpect(restored.store.cells, game.engine.store.cells);
+    t.checkExpect(restored.clicks, game.engine.clicks);
+    t.checkExpect(restored.powerRow, game.engine.powerRow);
+    t.checkExpect(restored.powerCol, game.engine.powerCol);
+    reopened.close();
+    
+    // even when the last move was only partly written
+    Files.write(path, new byte[] {0, 0}, StandardOpenOption.APPEND);
+    // reading it only, to replay, leaves the file as it is, with no writer
+    MoveJournal read = MoveJournal.read(path);
+    t.checkExpect(read.moves(), moves);
+    t.checkExpect(read.writer, null);
+    t.checkExpect(read.append(MoveJournal.rotation(0)), false);
+    t.checkException(new IOException("Journal was opened only to read"), read, "restart", 5L);
+    read.close();
+    t.checkExpect(Files.size(path), read.headerBytes + 4 * moves.length + 2);
+    reopened = MoveJournal.open(path);
+    t.checkExpect(reopened.restore().store.cells, game.engine.store.cells);
+    t.checkExpect(Files.size(path), reopened.headerBytes + 4 * moves.length);
+    
+    // starting over keeps the new game instead
+    reopened.append(MoveJournal.rotation(0));
+    reopened.restart(5);
+    t.checkExpect(reopened.moves().length, 0);
+    t.checkExpect(reopened.restore().store.cells,
+        new LightEmAll(4, 3, "normal", 5).engine.store.cells);
+    reopened.close();
+    reopened = MoveJournal.open(path);
+    t.checkExpect(reopened.seed, 5L);
+    t.checkExpect(Files.exists(path.resolveSibling(path.getFileName() + ".new")), false);
+    
+    // moves handed over while it starts over wait for it, and go into the new
+    // journal in order, none lost with the old one
+    Path racePath = Files.createTempFile("race", ".lej");
+    MoveJournal racing = MoveJournal.create(racePath, 4, 3, "normal", 8);
+    Thread clicker = new Thread(() -> {
+      for (int k = 0; k < 20000; k++) {
+        racing.append(MoveJournal.rotation(k));
+      }
+    });
+    clicker.start();
+    for (int k = 0; k < 5; k++) {
+      racing.restart(k);
+    }
+    try {
+      clicker.join();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    racing.flush();
+    int[] raced = racing.moves();
+    t.checkExpect(racing.written, racing.appended);
+    t.checkExpect((long) raced.length, racing.appended);
+    boolean inOrder = true;
+    for (int k = 0; k < raced.length; k++) {
+      inOrder = inOrder && raced[k] == 20000 - raced.length + k;
+    }
+    t.checkExpect(inOrder, true);
+    
+    // a move handed over in the middle of starting over waits until it is done
+    synchronized (racing) {
+      racing.restarting = true;
+    }
+    CountDownLatch handed = new CountDownLatch(1);
+    Thread late = new Thread(() -> {
+      racing.append(MoveJournal.rotation(7));
+      handed.countDown();
+    });
+    late.start();
+    try {
+      t.checkExpect(handed.await(100, TimeUnit.MILLISECONDS), false);
+      synchronized (racing) {
+        racing.restarting = false;
+        racing.notifyAll();
+      }
+      t.checkExpect(handed.await(10, TimeUnit.SECONDS), true);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    racing.flush();
+    t.checkExpect(racing.moves()[racing.moves().length - 1], MoveJournal.rotation(7));
+    racing.close();
+    Files.delete(racePath);
+    
+    // once a move can't be written the game plays on with nothing kept
+    game = new LightEmAll(reopened);
+    reopened.channel.close();
+    game.onMouseClicked(new Posn(35, 35));
+    t.checkExpect(game.journal, reopened);
+    try {
+      reopened.flush();
+    }
+    catch (IOException e) {
+      t.checkExpect(e instanceof ClosedChannelException, true);
+    }
+    t.checkExpect(reopened.append(MoveJournal.rotation(0)), false);
+    game.onMouseClicked(new Posn(35, 35));
+    t.checkExpect(game.journal, null);
+    t.checkExpect(game.engine.clicks, 2);
+    // and the journal it dropped is closed, its thread stopped
+    t.checkExpect(reopened.closed, true);
+    t.checkExpect(reopened.writer.isAlive(), false);
+    
+    Files.write(path, new byte[26]);
+    t.checkException(new IOException("Not a journal file"), journal, "open", path);
+    Files.delete(path);
+  }
+  
+  // how many of the given moves moved the station
+  int stationMoves(int[] moves) {
+    int count = 0;
+    for (int move : moves) {
+      if ((move & MoveJournal.STATION) != 0) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+  
+  // tests for the class MoveReplay
+  void testMoveReplay(Tester t) {
+    // the clicks that solve a board, then a move that does nothing once won
+    LightEngine engine = LightEngine.seeded(5, 4, "normal", 3);
+    int[] rotations = new BoardSolver(engine.store).solve();
+    ArrayList<Integer> moves = new ArrayList<Integer>();
+    moves.add(MoveJournal.stationMove(BoardStore.TOP));
+    for (int i = 0; i < rotations.length; i++) {
+      for (int k = 0; k < rotations[i]; k++) {
+        moves.add(MoveJournal.rotation(i));
+      }
+    }
+    moves.add(MoveJournal.rotation(0));
+    int[] recorded = new int[moves.size()];
+    for (int k = 0; k < recorded.length; k++) {
+      recorded[k] = moves.get(k);
+    }
+    
+    ReplayReport report = new MoveReplay(5, 4, "normal", 3).run(recorded);
+    t.checkExpect(report.moves(), recorded.length);
+    t.checkExpect(report.win, true);
+    t.checkExpect(report.wonAt, recorded.length - 2);
+    t.checkExpect(report.clicks, recorded.length - 2);
+    t.checkExpect(report.lit, 20);
+    t.checkExpect(report.tiles, 20);
+    t.checkExpect(report.played[0], false);
+    t.checkExpect(report.played[1], true);
+    t.checkExpect(report.played[recorded.length - 1], false);
+    // the same power after every move as playing them one at a time
+    for (int k = 0; k < recorded.length; k++) {
+      MoveJournal.play(engine, recorded[k]);
+      t.checkExpect(report.powered[k], engine.poweredCount());
+    }
+    t.checkExpect(report.percentile(100) >= report.percentile(50), true);
+    t.checkExpect(report.totalNanos() >= report.percentile(100), true);
+    
+    // with no moves, the board as it was made
+    ReplayReport none = new MoveReplay(5, 4, "normal", 3).run(new int[0]);
+    t.checkExpect(none.win, false);
+    t.checkExpect(none.wonAt, -1);
+    t.checkExpect(none.lit, LightEngine.seeded(5, 4, "normal", 3).poweredCount());
+    t.checkExpect(none.percentile(50), 0L);
+  }
+  
+  // tests for the class MoveHistory
+  void testMoveHistory(Tester t) {
+    t.checkExpect(MoveHistory.rotation(7), 7);
+    t.checkExpect(MoveHistory.tile(MoveHistory.rotation(123456)), 123456);
+    t.checkExpect(MoveHistory.isStation(MoveHistory.rotation(9)), false);
+    // every tile index a board can have is a rotation, not a station move
+    t.checkExpect(MoveHistory.isStation(MoveHistory.rotation(1 << 29)), false);
+    t.checkExpect(MoveHistory.tile(MoveHistory.rotation(Integer.MAX_VALUE - 1)),
+        Integer.MAX_VALUE - 1);
+    t.checkExpect(MoveHistory.isStation(MoveHistory.rotation(Integer.MAX_VALUE - 1)), false);
+    t.checkExpect(MoveHistory.isStation(MoveHistory.stationMove(BoardStore.LEFT)), true);
+    t.checkExpect(MoveHistory.wire(MoveHistory.stationMove(BoardStore.LEFT)), BoardStore.LEFT);
+    
+    MoveHistory history = new MoveHistory();
+    t.checkExpect(history.canUndo(), false);
+    for (int k = 0; k < 20; k++) {
+      history.record(MoveHistory.rotation(k));
+    }
+    t.checkExpect(history.undo(), MoveHistory.rotation(19));
+    t.checkExpect(history.undo(), MoveHistory.rotation(18));
+    t.checkExpect(history.canRedo(), true);
+    t.checkExpect(history.redo(), MoveHistory.rotation(18));
+    // a new move forgets the ones taken back
+    history.record(MoveHistory.stationMove(BoardStore.TOP));
+    t.checkExpect(history.canRedo(), false);
+    t.checkExpect(history.undo(), MoveHistory.stationMove(BoardStore.TOP));
+    t.checkExpect(history.undo(), MoveHistory.rotation(18));
+    
+    // taking back every move gives back the board as it was made
+    LightEngine engine = LightEngine.seeded(9, 7, "normal", 4);
+    byte[] start = engine.store.cells.clone();
+    Random rand = new Random(11);
+    String[] keys = {"up", "down", "left", "right"};
+    int moves = 0;
+    for (int k = 0; k < 400; k++) {
+      int pick = rand.nextInt(10);
+      boolean moved = pick < 6
+          ? engine.rotate(rand.nextInt(7), rand.nextInt(9))
+          : pick < 8 ? engine.moveStation(keys[rand.nextInt(4)])
+          : pick < 9 ? engine.undo() : engine.redo();
+      moves += moved && pick < 8 ? 1 : 0;
+      // only what changed is re-powered, and it matches lighting it all up
+      byte[] cells = engine.store.cells.clone();
+      engine.lightEmUp();
+      t.checkExpect(engine.store.cells, cells);
+      if (engine.win) {
+        break;
+      }
+    }
+    t.checkExpect(moves > 100, true);
+    while (engine.undo()) {
+      t.checkExpect(engine.clicks >= 0, true);
+    }
+    t.checkExpect(engine.store.cells, start);
+    t.checkExpect(engine.clicks, 0);
+    t.checkExpect(engine.undo(), false);
+    
+    // and making them all again gives back where the game got to
+    LightEmAll game = new LightEmAll(4, 3, "normal", 8);
+    game.onMouseClicked(new Posn(105, 35));
+    game.onMouseClicked(new Posn(35, 175));
+    byte[] played = game.engine.store.cells.clone();
+    game.onKeyEvent("z");
+    t.checkExpect(game.engine.clicks, 1);
+    game.onKeyEvent("z");
+    t.checkExpect(game.engine.clicks, 0);
+    t.checkExpect(game.engine.store.cells, new LightEmAll(4, 3, "normal", 8).engine.store.cells);
+    game.onKeyEvent("y");
+    game.onKeyEvent("y");
+    game.onKeyEvent("y");
+    t.checkExpect(game.engine.store.cells, played);
+    t.checkExpect(game.engine.clicks, 2);
+  }
+  
+  // tests for restarting a LightEngine in the memory of the last board
+  void testRestartInPlace(Tester t) {
+    for (String bias : new String[] {"normal", "horizontal", "vertical"}) {
+      LightEngine engine = new LightEngine(6, 5, bias, new Random(2), new KruskalGenerator());
+      BoardStore store = engine.store;
+      PowerEngine power = engine.power;
+      byte[] solved = engine.solved;
+      int[] edges = ((KruskalGenerator) engine.generator).ends;
+      engine.rotate(2, 3);
+      engine.moveStation("right");
+      
+      // the same board as one made from scratch, in the same memory
+      engine.restart(new Random(9));
+      LightEngine fresh = new LightEngine(6, 5, bias, new Random(9), new KruskalGenerator());
+      t.checkExpect(engine.store.cells, fresh.store.cells);
+      t.checkExpect(engine.solved, fresh.solved);
+      t.checkExpect(engine.poweredCount(), fresh.poweredCount());
+      t.checkExpect(engine.store == store && engine.power == power, true);
+      t.checkExpect(engine.solved == solved, true);
+      t.checkExpect(((KruskalGenerator) engine.generator).ends == edges, true);
+      t.checkExpect(engine.history.canUndo(), false);
+      
+      // and from a seed, as a game kept in a journal restarts
+      LightEngine seeded = LightEngine.seeded(6, 5, bias, 3);
+      int[] groups = ((BoruvkaGenerator) seeded.generator).groupOf;
+      seeded.rotate(0, 0);
+      seeded.restart(4);
+      t.checkExpect(seeded.store.cells, LightEngine.seeded(6, 5, bias, 4).store.cells);
+      t.checkExpect(((BoruvkaGenerator) seeded.generator).groupOf == groups, true);
+    }
+    
+    // what was drawn is drawn again from the same renderer
+    LightEmAll game = new LightEmAll(4, 3, "normal", 8);
+    BoardRenderer renderer = game.renderer;
+    game.engine.win = true;
+    game.onKeyEvent("r");
+    t.checkExpect(game.renderer == renderer, true);
+    t.checkExpect(game.renderer.update() > 0, true);
+  }
+  
+  // tests for the class BoardPrefetcher
+  void testBoardPrefetcher(Tester t) throws InterruptedException, IOException {
+    // as many boards ahead as asked for, as long as they fit
+    t.checkExpect(BoardPrefetcher.capacity(3, BoardPrefetcher.MAX_BYTES, 100), 3);
+    t.checkExpect(BoardPrefetcher.capacity(3, 250, 100), 2);
+    t.checkExpect(BoardPrefetcher.capacity(3, 10, 100), 1);
+    
+    // every board is the one its seed makes
+    BoardPrefetcher prefetcher = new BoardPrefetcher(7, 5, "vertical", 3,
+        BoruvkaGenerator::new, 2, BoardPrefetcher.MAX_BYTES);
+    t.checkExpect(prefetcher.boards.remainingCapacity() + prefetcher.boards.size(), 2);
+    BoardRecord first = prefetcher.take();
+    BoardRecord second = prefetcher.take();
+    t.checkExpect(first.seed == second.seed, false);
+    LightEngine engine = LightEngine.seeded(7, 5, "vertical", second.seed);
+    t.checkExpect(second.current.equals(ByteBuffer.wrap(BoardRecord.pack(engine.store))), true);
+    t.checkExpect(second.solved(), engine.solved);
+    
+    // loading one starts over on it in the same memory
+    byte[] cells = engine.store.cells;
+    engine.rotate(1, 1);
+    engine.load(first);
+    t.checkExpect(engine.store.cells, LightEngine.seeded(7, 5, "vertical", first.seed).store.cells);
+    t.checkExpect(engine.store.cells == cells, true);
+    t.checkExpect(engine.clicks, 0);
+    t.checkExpect(engine.history.canUndo(), false);
+    prefetcher.close();
+    t.checkException(new IllegalArgumentException("Can't load a 7x5 board into a 4x3 game"),
+        new LightEngine(4, 3, "normal", new Random(1), new KruskalGenerator()), "load", first);
+    
+    // a game kept in a journal restarts on a board made ahead, which the
+    // journal makes again from its seed
+    Path path = Files.createTempFile("game", ".lej");
+    MoveJournal journal = MoveJournal.create(path, 4, 3, "normal", 8);
+    LightEmAll game = new LightEmAll(journal);
+    game.prefetch(1);
+    BoardRecord ahead = game.prefetcher.take();
+    game.prefetcher.boards.put(ahead);
+    game.engine.win = true;
+    game.onKeyEvent("r");
+    t.checkExpect(journal.seed, ahead.seed);
+    t.checkExpect(game.engine.store.cells, journal.restore().store.cells);
+    t.checkExpect(game.engine.win, false);
+    game.prefetcher.close();
+    journal.close();
+    Files.delete(path);
+    
+    // a board that can't be made is thrown once the boards made run out
+    BoardPrefetcher broken = new BoardPrefetcher(3, 3, "normal", 1, () -> null, 1, 100);
+    t.checkException(new IllegalStateException("The next board couldn't be made"), broken,
+        "take");
+    // and a game that runs out of them makes its next board on the spot
+    LightEmAll spot = new LightEmAll(4, 3, "normal", 8);
+    spot.prefetcher = broken;
+    spot.engine.win = true;
+    spot.onKeyEvent("r");
+    t.checkExpect(spot.prefetcher, null);
+    t.checkExpect(spot.engine.win, false);
+    t.checkExpect(broken.maker.isAlive(), false);
+    // errors stop the thread too, and are thrown the same way
+    BoardPrefetcher starved = new BoardPrefetcher(3, 3, "normal", 1,
+        () -> {
+          throw new OutOfMemoryError("no room for a generator");
+        }, 1, 100);
+    t.checkException(new IllegalStateException("The next board couldn't be made"), starved,
+        "take");
+    t.checkExpect(starved.failure instanceof OutOfMemoryError, true);
+    
+    // closing doesn't wait long for a board that is part way through
+    CountDownLatch gate = new CountDownLatch(1);
+    BoardPrefetcher stuck = new BoardPrefetcher(3, 3, "normal", 1,
+        () -> this.stall(gate), 1, 100);
+    long start = System.nanoTime();
+    stuck.close();
+    t.checkExpect(System.nanoTime() - start < 5 * BoardPrefetcher.POLL_MILLIS * 1000000, true);
+    t.checkExpect(stuck.maker.isAlive(), true);
+    gate.countDown();
+    stuck.maker.join();
+    
+    // with no journal, boards are made by the game's own kind of generator
+    LightEmAll prim = new LightEmAll(new LightEngine(4, 3, "normal", new Random(2),
+        new PrimGenerator()));
+    prim.prefetch(1);
+    BoardRecord made = prim.prefetcher.take();
+    LightEngine same = new LightEngine(4, 3, "normal", new Random(made.seed),
+        new PrimGenerator());
+    t.checkExpect(made.current.equals(ByteBuffer.wrap(BoardRecord.pack(same.store))), true);
+    t.checkExpect(made.solved(), same.solved);
+    prim.prefetcher.close();
+  }
+  
+  // to wait until the given gate opens, however often interrupted, and then
+  // make no generator
+  BoardGenerator stall(CountDownLatch gate) {
+    while (gate.getCount() > 0) {
+      try {
+        gate.await();
+      }
+      catch (InterruptedException e) {
+        // still waiting for the gate
+      }
+    }
+    return null;
+  }
+  
+  // tests for the classes PerformanceHud and Histogram
+  void testPerformanceHud(Tester t) {
+    Histogram histogram = new Histogram();
+    t.checkExpect(histogram.percentile(50), 0L);
+    histogram.record(0);
+    histogram.record(-5);
+    histogram.record(1);
+    histogram.record(100);
+    t.checkExpect(histogram.total, 4L);
+    // by bucket, so 100 comes out as 127
+    t.checkExpect(histogram.percentile(50), 0L);
+    t.checkExpect(histogram.percentile(75), 1L);
+    t.checkExpect(histogram.percentile(99), 127L);
+    histogram.record(Long.MAX_VALUE);
+    t.checkExpect(histogram.percentile(100), Long.MAX_VALUE);
+    histogram.clear();
+    t.checkExpect(histogram.total, 0L);
+    
+    // nothing is recorded while it is off
+    LightEmAll game = new LightEmAll(4, 3, "normal", 8);
+    game.makeScene();
+    game.onMouseClicked(new Posn(105, 35));
+    t.checkExpect(game.hud.start(), 0L);
+    t.checkExpect(game.hud.frames.total + game.hud.clicks.total, 0L);
+    
+    // p shows it, won or not, and every frame and click is recorded
+    game.engine.win = true;
+    game.onKeyEvent("p");
+    game.engine.win = false;
+    t.checkExpect(game.hud.on, true);
+    game.onMouseClicked(new Posn(105, 35));
+    game.onMouseClicked(new Posn(1000, 1000));
+    game.makeScene();
+    game.makeScene();
+    t.checkExpect(game.hud.clicks.total, 1L);
+    t.checkExpect(game.hud.frames.total, 2L);
+    t.checkExpect(game.hud.visited.total, 1L);
+    t.checkExpect(game.hud.lines().length, 4);
+    t.checkExpect(game.hud.lines()[0].startsWith("frame p50 "), true);
+    t.checkExpect(PerformanceHud.micros(1500), "1.5 us");
+    
+    // the tiles a power update looked at
+    game.engine.lightEmUp();
+    t.checkExpect(game.engine.power.visited(), game.engine.poweredCount());
+    game.onKeyEvent("p");
+    t.checkExpect(game.hud.on, false);
+  }
+  
+  // tests for the flight recorder events
+  void testBoardEvents(Tester t) throws IOException {
+    Recording recording = new Recording();
+    for (Class<? extends Event> type : Arrays.asList(GenerateEvent.class,
+        AssignEdgesEvent.class, KruskalEvent.class, PowerEvent.class, ClickEvent.class,
+        RestartEvent.class, FrameEvent.class)) {
+      recording.enable(type).withoutThreshold();
+    }
+    recording.start();
+    LightEmAll game = new LightEmAll(5, 4, "vertical", new Random(3), new KruskalGenerator());
+    game.onMouseClicked(new Posn(105, 35));
+    game.makeScene();
+    game.engine.win = true;
+    game.onKeyEvent("r");
+    recording.stop();
+    Path path = Files.createTempFile("game", ".jfr");
+    recording.dump(path);
+    recording.close();
+    
+    // every event, with the board it happened on
+    ArrayList<String> names = new ArrayList<String>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(path)) {
+      names.add(event.getEventType().getName());
+      t.checkExpect(event.getInt("width"), 5);
+      t.checkExpect(event.getInt("height"), 4);
+      t.checkExpect(event.getString("bias"), "vertical");
+      if (event.getEventType().getName().equals("lightemall.AssignEdges")
+          && event.getBoolean("reused")) {
+        names.add("reused");
+      }
+      if (event.getEventType().getName().equals("lightemall.Click")) {
+        t.checkExpect(event.getInt("tile"), 1);
+      }
+    }
+    for (String name : new String[] {"Generate", "AssignEdges", "Kruskal", "Power", "Click",
+        "Restart", "Frame"}) {
+      t.checkExpect(names.contains("lightemall." + name), true);
+    }
+    // the edges made for the first board get new weights on restart
+    t.checkExpect(Collections.frequency(names, "lightemall.AssignEdges"), 2);
+    t.checkExpect(Collections.frequency(names, "reused"), 1);
+    Files.delete(path);
+  }
+  
+  // tests for the class HintEngine
+  void testHintEngine(Tester t) {
+    t.checkExpect(HintEngine.CLICKS[BoardStore.TOP][BoardStore.RIGHT], 1);
+    t.checkExpect(HintEngine.CLICKS[BoardStore.RIGHT][BoardStore.TOP], 3);
+    // a straight wire is back after two clicks, a cross never needs any
+    t.checkExpect(HintEngine.CLICKS[BoardStore.TOP | BoardStore.BOTTOM][BoardStore.LEFT
+        | BoardStore.RIGHT], 1);
+    t.checkExpect(HintEngine.CLICKS[BoardStore.TOP | BoardStore.BOTTOM][BoardStore.TOP
+        | BoardStore.BOTTOM], 0);
+    t.checkExpect(HintEngine.CLICKS[BoardStore.WIRES][BoardStore.WIRES], 0);
+    t.checkExpect(HintEngine.CLICKS[BoardStore.TOP][BoardStore.WIRES], -1);
+    
+    LightEngine engine = LightEngine.seeded(6, 5, "normal", 12);
+    HintEngine hints = engine.hints();
+    t.checkExpect(hints.clicksLeft, engine.par);
+    t.checkExpect(engine.par > 0, true);
+    t.checkExpect(engine.par, HintEngine.clicksLeft(engine.store, engine.solved));
+    
+    // every click, undo and redo keeps the counts the same as counting again
+    Random rand = new Random(5);
+    for (int k = 0; k < 200 && !engine.win; k++) {
+      int pick = rand.nextInt(8);
+      if (pick < 6) {
+        engine.rotate(rand.nextInt(5), rand.nextInt(6));
+      }
+      else if (pick < 7) {
+        engine.undo();
+      }
+      else {
+        engine.redo();
+      }
+      t.checkExpect(hints.clicksLeft, HintEngine.clicksLeft(engine.store, engine.solved));
+      int wrong = 0;
+      for (int i = 0; i < engine.store.size(); i++) {
+        wrong += hints.clicksFor(i) == 0 ? 0 : 1;
+        t.checkExpect(hints.positions[i] >= 0, hints.clicksFor(i) != 0);
+      }
+      t.checkExpect(hints.count, wrong);
+    }
+    
+    // following the hints wins in exactly the clicks left
+    engine = LightEngine.seeded(6, 5, "normal", 12);
+    hints = engine.hints();
+    while (hints.next() >= 0) {
+      int tile = hints.next();
+      engine.rotate(engine.store.rowOf(tile), engine.store.colOf(tile));
+    }
+    t.checkExpect(engine.win, true);
+    t.checkExpect(engine.clicks, engine.par);
+    t.checkExpect(hints.clicksLeft, 0);
+    
+    // a new board starts the hints over
+    engine.restart(4);
+    t.checkExpect(hints.clicksLeft, engine.par);
+    t.checkExpect(engine.par, HintEngine.clicksLeft(engine.store, engine.solved));
+    
+    // h shows them in the window
+    LightEmAll game = new LightEmAll(4, 3, "normal", 8);
+    game.makeScene();
+    t.checkExpect(game.engine.hints, null);
+    game.onKeyEvent("h");
+    t.checkExpect(game.hinting, true);
+    game.makeScene();
+    t.checkExpect(game.engine.hints.clicksLeft, game.engine.par);
+    game.onKeyEvent("h");
+    t.checkExpect(game.hinting, false);
+  }
+  
+  // tests for power limited by a radius
+  void testRadius(Tester t) {
+    // a line of three tiles is two wires long
+    BoardStore line = new BoardStore(3, 1);
+    PowerEngine power = new PowerEngine(line);
+    byte[] wires = {BoardStore.RIGHT, BoardStore.LEFT | BoardStore.RIGHT, BoardStore.LEFT};
+    t.checkExpect(power.diameter(wires), 2);
+    int[] distances = new int[3];
+    t.checkExpect(power.farthest(wires, 1, distances, new BfsKernel(3)) != 1, true);
+    t.checkExpect(distances, new int[] {1, 0, 1});
+    
+    LightEngine engine = LightEngine.seeded(9, 8, "normal", 6);
+    t.checkExpect(engine.power.radius, PowerEngine.NO_RADIUS);
+    int unlimited = engine.poweredCount();
+    engine.useRadius(true);
+    t.checkExpect(engine.power.radius, engine.power.diameter(engine.solved) / 2 + 1);
+    this.checkRadius(t, engine);
+    
+    // every rotation and station move powers just the tiles in the radius
+    Random rand = new Random(21);
+    String[] keys = {"up", "down", "left", "right"};
+    for (int k = 0; k < 300 && !engine.win; k++) {
+      int pick = rand.nextInt(10);
+      if (pick < 6) {
+        engine.rotate(rand.nextInt(8), rand.nextInt(9));
+      }
+      else if (pick < 9) {
+        engine.moveStation(keys[rand.nextInt(4)]);
+      }
+      else {
+        engine.undo();
+      }
+      this.checkRadius(t, engine);
+    }
+    
+    // a new board gets a radius of its own
+    engine.restart(7);
+    t.checkExpect(engine.power.radius, engine.power.diameter(engine.solved) / 2 + 1);
+    this.checkRadius(t, engine);
+    
+    // and lifting the limit powers as far as the wires go again
+    engine = LightEngine.seeded(9, 8, "normal", 6);
+    engine.useRadius(true);
+    engine.useRadius(false);
+    t.checkExpect(engine.power.distances, null);
+    t.checkExpect(engine.poweredCount(), unlimited);
+    
+    // on a solved board, moving the station to the middle of the tree wins,
+    // a wire at a time toward the tile farthest from it
+    LightEngine solved = LightEngine.seeded(9, 8, "normal", 6);
+    for (int i = 0; i < solved.solved.length; i++) {
+      solved.store.setWires(i, solved.solved[i]);
+    }
+    solved.useRadius(true);
+    t.checkExpect(solved.win, false);
+    int[] away = new int[solved.store.size()];
+    BfsKernel walk = new BfsKernel(solved.store.size());
+    int moves = 0;
+    while (!solved.win && moves < solved.store.size()) {
+      int station = solved.store.index(solved.powerRow, solved.powerCol);
+      solved.power.farthest(solved.solved, solved.power.farthest(solved.solved, station,
+          away, walk), away, walk);
+      for (int wire : PowerEngine.DIRECTIONS) {
+        if (solved.store.connected(station, wire)
+            && away[solved.store.neighbor(station, wire)] < away[station]) {
+          solved.moveStation(wire);
+          break;
+        }
+      }
+      moves += 1;
+    }
+    t.checkExpect(solved.win, true);
+    t.checkExpect(moves > 0, true);
+    this.checkRadius(t, solved);
+    
+    // and taking back the click that broke a solved board wins again
+    solved.win = false;
+    solved.rotate(0, 0);
+    t.checkExpect(solved.win, false);
+    solved.undo();
+    t.checkExpect(solved.win, true);
+    
+    // moves on a board of crosses and tees, full of loops, leave the same
+    // tiles powered at the same distances as powering them again from
+    // scratch, with the board's own radius, and small ones moves keep crossing
+    for (int radius : new int[] {3, 8, 0}) {
+      LightEngine loops = LightEngine.seeded(20, 16, "normal", 9);
+      Random moving = new Random(radius);
+      for (int i = 0; i < loops.store.size(); i++) {
+        int tee = BoardStore.WIRES;
+        if (moving.nextInt(3) > 0) {
+          tee &= ~PowerEngine.DIRECTIONS[moving.nextInt(4)];
+        }
+        loops.store.setWires(i, tee);
+      }
+      loops.useRadius(true);
+      if (radius > 0) {
+        loops.power.radius = radius;
+        loops.lightEmUp();
+      }
+      boolean same = true;
+      for (int k = 0; k < 2000 && !loops.win; k++) {
+        if (moving.nextInt(3) == 0) {
+          loops.moveStation(PowerEngine.DIRECTIONS[moving.nextInt(4)]);
+        }
+        else {
+          loops.rotate(moving.nextInt(16), moving.nextInt(20));
+        }
+        same = same && this.sameAsFlood(loops.power);
+      }
+      t.checkExpect(same, true);
+    }
+  }
+  
+  // does the given power, limited by a radius, have the same tiles powered at
+  // the same distances as powering a copy of its board from scratch, with
+  // every powered tile's parent a wire nearer the station and wired to it?
+  boolean sameAsFlood(PowerEngine power) {
+    BoardStore copy = new BoardStore(power.store.width, power.store.height);
+    copy.cells = power.store.cells.clone();
+    PowerEngine flood = new PowerEngine(copy);
+    flood.distances = new int[copy.size()];
+    flood.radius = power.radius;
+    flood.relightAll(power.station);
+    boolean same = flood.powered == power.powered;
+    for (int i = 0; i < copy.size(); i++) {
+      boolean lit = flood.parents[i] != PowerEngine.NONE;
+      same = same && lit == (power.parents[i] != PowerEngine.NONE)
+          && lit == power.store.isPowered(i)
+          && (!lit || flood.distances[i] == power.distances[i]);
+      if (lit && i != power.station) {
+        int parent = power.parents[i];
+        boolean wired = false;
+        for (int wire : PowerEngine.DIRECTIONS) {
+          wired = wired || power.store.connected(i, wire)
+              && power.store.neighbor(i, wire) == parent;
+        }
+        same = same && wired && power.distances[parent] == power.distances[i] - 1;
+      }
+    }
+    return same;
+  }
+  
+  // to check exactly the tiles no more wires from the station than the radius
+  // are powered, each with its distance, by searching the board again
+  void checkRadius(Tester t, LightEngine engine) {
+    BoardStore store = engine.store;
+    int[] distances = new int[store.size()];
+    Arrays.fill(distances, -1);
+    ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+    int station = store.index(engine.powerRow, engine.powerCol);
+    distances[station] = 0;
+    queue.add(station);
+    while (!queue.isEmpty()) {
+      int next = queue.poll();
+      for (int wire : PowerEngine.DIRECTIONS) {
+        if (store.connected(next, wire) && distances[store.neighbor(next, wire)] < 0) {
+          distances[store.neighbor(next, wire)] = distances[next] + 1;
+          queue.add(store.neighbor(next, wire));
+        }
+      }
+    }
+    int powered = 0;
+    boolean same = true;
+    for (int i = 0; i < store.size(); i++) {
+      boolean inRadius = distances[i] >= 0 && distances[i] <= engine.power.radius;
+      same = same && store.isPowered(i) == inRadius
+          && (!inRadius || engine.power.distances[i] == distances[i]);
+      powered += inRadius ? 1 : 0;
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(engine.poweredCount(), powered);
+  }
 }
@@ -0,0 +1,371 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent the game itself with nothing drawn: the board, the power
+// station, the clicks made and whether the game is won, so games can be
+// made and played with no window
+class LightEngine {
+  // the width and height of the board
+  int width;
+  int height;
+  // the packed state of every tile, in row-major order
+  BoardStore store;
+  // which tiles are powered, and where they got their power from
+  PowerEngine power;
+  // the current location of the power station
+  int powerRow;
+  int powerCol;
+  // for rotations
+  Random rand;
+  // bias for edges
+  // horizontal, vertical, or normal
+  String bias;
+  // how the tiles get wired up as a spanning tree
+  BoardGenerator generator;
+  // the wires of each tile as they were wired up, before being scrambled
+  byte[] solved;
+  // win state
+  boolean win;
+  // click value
+  int clicks;
+  // the moves made so far, for taking them back and making them again
+  MoveHistory history;
+  // the fewest clicks that turn every tile back to how it was wired up
+  int par;
+  // which tiles are turned wrong, null until hints are asked for
+  HintEngine hints;
+
+  LightEngine(int width, int height, String bias, Random rand, BoardGenerator generator) {
+    this.width = width;
+    this.height = height;
+    this.rand = rand;
+    this.bias = bias;
+    this.generator = generator;
+    this.generate();
+  }
+
+  // to make the game that a LightEmAll made from the given seed plays,
+  // wired up in parallel
+  static LightEngine seeded(int width, int height, String bias, long seed) {
+    return new LightEngine(width, height, bias, new Random(seed), new BoruvkaGenerator());
+  }
+
+  // to start a game on the given saved board, with new boards on restart
+  // wired up by the given generator
+  LightEngine(BoardRecord record, BoardGenerator generator) {
+    this.width = record.width;
+    this.height = record.height;
+    this.rand = new Random(record.seed);
+    this.bias = record.bias;
+    this.generator = generator;
+    this.store = new BoardStore(this.width, this.height);
+    this.power = new PowerEngine(this.store);
+    this.solved = new byte[this.store.size()];
+    this.history = new MoveHistory();
+    this.load(record);
+  }
+
+  // to start over on the given saved board, of the same size as this one,
+  // in the memory of this board, throwing an IllegalArgumentException if
+  // some tile can't be turned into its solved tile, so the board can't be won
+  void load(BoardRecord record) {
+    if (record.width != this.width || record.height != this.height) {
+      throw new IllegalArgumentException("Can't load a " + record.width + "x"
+          + record.height + " board into a " + this.width + "x" + this.height + " game");
+    }
+    for (int i = 0; i < this.solved.length; i++) {
+      if (HintEngine.CLICKS[record.wires(i)][record.solvedWires(i)] < 0) {
+        throw new IllegalArgumentException("Tile " + i + " can't be turned to its solved wires");
+      }
+    }
+    this.store.clear();
+    for (int i = 0; i < this.solved.length; i++) {
+      this.store.setWires(i, record.wires(i));
+      this.solved[i] = (byte) record.solvedWires(i);
+    }
+    // the station where it was saved
+    this.powerRow = record.stationRow;
+    this.powerCol = record.stationCol;
+    this.store.setStation(this.store.index(this.powerRow, this.powerCol), true);
+    this.startHints();
+    this.fitRadius();
+    this.win = false;
+    this.lightEmUp();
+    this.clicks = 0;
+    this.history.clear();
+  }
+
+  // to limit how far power goes from the station to the radius of the board
+  // as it was wired up, or to let it go as far as the wires do, powering the
+  // board again
+  void useRadius(boolean limited) {
+    if (!limited) {
+      this.power.distances = null;
+    }
+    else if (this.power.distances == null) {
+      this.power.distances = new int[this.store.size()];
+    }
+    this.fitRadius();
+    this.lightEmUp();
+    this.winCondition();
+  }
+
+  // to set the radius to half the longest path of the board as it was wired
+  // up, plus one, when power is limited, so the station has to be near the
+  // middle of the tree to power every tile
+  void fitRadius() {
+    if (this.power.distances == null) {
+      this.power.radius = PowerEngine.NO_RADIUS;
+    }
+    else {
+      this.power.radius = this.power.diameter(this.solved) / 2 + 1;
+    }
+  }
+
+  // to work out the par of a new board, and start the hints over if asked for
+  void startHints() {
+    this.par = HintEngine.clicksLeft(this.store, this.solved);
+    if (this.hints != null) {
+      this.hints.reset();
+    }
+  }
+
+  // to get which tiles are turned wrong and how many clicks are left, kept up
+  // to date from here on
+  HintEngine hints() {
+    if (this.hints == null) {
+      this.hints = new HintEngine(this.store, this.solved);
+    }
+    return this.hints;
+  }
+
+  // to turn the tile at the given index clockwise the given number of times,
+  // re-powering only what changes and keeping the hints up to date
+  void turn(int index, int times) {
+    this.power.rotate(index, times);
+    if (this.hints != null) {
+      this.hints.rotated(index, times);
+    }
+  }
+
+  // to make a new board: wired up as a spanning tree,
+  // randomly rotated and powered from the station at the top left,
+  // in the memory of the last board when there is one
+  void generate() {
+    // origin: top left
+    this.powerRow = 0;
+    this.powerCol = 0;
+    if (this.store == null) {
+      // initializes board
+      this.store = new BoardStore(this.width, this.height);
+      this.power = new PowerEngine(this.store);
+      this.solved = new byte[this.store.size()];
+      this.history = new MoveHistory();
+    }
+    else {
+      // the same tiles and power tree, emptied out
+      this.store.clear();
+      this.history.clear();
+    }
+    // setting powerStation to origin (top left)
+    this.store.setStation(0, true);
+    // wires up the tiles as a spanning tree
+    GenerateEvent event = new GenerateEvent();
+    event.begin();
+    this.generator.generate(this.store, this.rand, this.bias);
+    if (event.shouldCommit()) {
+      event.board(this.width, this.height, this.bias);
+      event.generator = this.generator.getClass().getSimpleName();
+      event.commit();
+    }
+    for (int i = 0; i < this.solved.length; i++) {
+      this.solved[i] = (byte) this.store.wires(i);
+    }
+    // randomly rotates the tiles 
+    this.randomStart();
+    this.startHints();
+    this.fitRadius();
+    // win condition
+    this.win = false;
+    // BFS
+    this.lightEmUp();
+    // click value
+    // starts at 0
+    this.clicks = 0;
+  }
+
+  // to start over on a new board with the same size and bias,
+  // using the given random
+  void restart(Random rand) {
+    this.rand = rand;
+    this.generate();
+  }
+
+  // to start over on the new board a game made from the given seed starts on,
+  // with no new random
+  void restart(long seed) {
+    this.rand.setSeed(seed);
+    this.generate();
+  }
+
+  // to randomly rotate tiles at the start of the game
+  void randomStart() {
+    LightEngine.scramble(this.store, this.rand);
+  }
+
+  // to randomly rotate every tile of the given board, column by column, the
+  // same way for the same randomness whether or not a game is played on it
+  static void scramble(BoardStore store, Random rand) {
+    // random amount of rotations 
+    int rotateIt = rand.nextInt(4);
+    for (int w = 0; w < store.width; w++) {
+      for (int h = 0; h < store.height; h++) {
+        // rotating tile rotateIt amount of times
+        store.rotate(store.index(h, w), rotateIt);
+        // resetting random amount of rotations for next tile
+        rotateIt = rand.nextInt(4);
+      }
+    }
+  }
+  
+  // to rotate the tile at the given row and column once clockwise,
+  // returns whether it was rotated, which it isn't off the board or once won
+  boolean rotate(int row, int col) {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width || this.win) {
+      return false;
+    }
+    // rotating and re-powering only the tiles whose power
+    // went through, or now goes through, the clicked tile
+    this.turn(this.store.index(row, col), 1);
+    this.history.record(MoveHistory.rotation(this.store.index(row, col)));
+    // updating clicks values for each rotation
+    this.clicks += 1;
+    // checking for win after each click
+    this.winCondition();
+    return true;
+  }
+
+  // to move the power station one tile "left", "right", "up" or "down",
+  // returns whether it moved, which it only does along connected wires
+  boolean moveStation(String direction) {
+    int wire = LightEngine.wireOf(direction);
+    return wire != 0 && this.moveStation(wire);
+  }
+
+  // to get the wire going "left", "right", "up" or "down", 0 for anything else
+  static int wireOf(String direction) {
+    if (direction.equals("left")) {
+      return BoardStore.LEFT;
+    }
+    else if (direction.equals("right")) {
+      return BoardStore.RIGHT;
+    }
+    else if (direction.equals("up")) {
+      return BoardStore.TOP;
+    }
+    else if (direction.equals("down")) {
+      return BoardStore.BOTTOM;
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // to move the power station one tile along the given wire,
+  // returns whether it moved, which it only does along connected wires
+  boolean moveStation(int wire) {
+    if (this.win) {
+      return false;
+    }
+    // tile where the power station is
+    int tile = this.store.index(this.powerRow, this.powerCol);
+    // only along a wire both tiles have
+    if (!this.store.connected(tile, wire)) {
+      return false;
+    }
+    this.shiftStation(wire);
+    this.history.record(MoveHistory.stationMove(wire));
+    return true;
+  }
+
+  // to move the power station one tile along the given connected wire, which
+  // leaves the same tiles powered unless power is limited by a radius, where
+  // moving it can win the game
+  void shiftStation(int wire) {
+    int tile = this.store.index(this.powerRow, this.powerCol);
+    int next = this.store.neighbor(tile, wire);
+    this.store.setStation(tile, false);
+    // tile where station was moved to
+    this.store.setStation(next, true);
+    this.powerRow = this.store.rowOf(next);
+    this.powerCol = this.store.colOf(next);
+    this.power.moveStation(next);
+    this.winCondition();
+  }
+
+  // to take back the last move not yet taken back, a click taking its click
+  // with it, returns whether there was one, which there isn't once won
+  boolean undo() {
+    if (this.win || !this.history.canUndo()) {
+      return false;
+    }
+    int move = this.history.undo();
+    if (MoveHistory.isStation(move)) {
+      this.shiftStation(BoardStore.opposite(MoveHistory.wire(move)));
+    }
+    else {
+      // turning the rest of the way around, re-powering only what changes
+      this.turn(MoveHistory.tile(move), 3);
+      this.clicks -= 1;
+      this.winCondition();
+    }
+    return true;
+  }
+
+  // to make the last move taken back again, returns whether there was one
+  boolean redo() {
+    if (this.win || !this.history.canRedo()) {
+      return false;
+    }
+    int move = this.history.redo();
+    if (MoveHistory.isStation(move)) {
+      this.shiftStation(MoveHistory.wire(move));
+    }
+    else {
+      this.turn(MoveHistory.tile(move), 1);
+      this.clicks += 1;
+      this.winCondition();
+    }
+    return true;
+  }
+
+  // BFS for powering neighboring pieces
+  void lightEmUp() {
+    PowerEvent event = new PowerEvent();
+    event.begin();
+    this.power.relightAll(this.store.index(this.powerRow, this.powerCol));
+    if (event.shouldCommit()) {
+      event.board(this.width, this.height, this.bias);
+      event.powered = this.power.poweredCount();
+      event.commit();
+    }
+  }
+
+  // to check if the game has been won
+  void winCondition() {
+    if (this.power.allPowered()) {
+      this.win = true;
+    }
+  }
+
+  // is the tile at the given row and column powered?
+  boolean isPowered(int row, int col) {
+    return this.store.isPowered(this.store.index(row, col));
+  }
+
+  // how many tiles are powered, for checking progress without walking the board
+  int poweredCount() {
+    return this.power.poweredCount();
+  }
+}
@@ -0,0 +1,89 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent the moves made in a game, for taking them back and making them
+// again, one int each, like MoveJournal's: the index of the tile for a click,
+// which turns it once clockwise, or STATION and the wire the station moved
+// along; every index a board can have fits below the sign bit. Moves taken
+// back stay until a new move is made
+class MoveHistory {
+  // the bit that marks a move of the station
+  static final int STATION = Integer.MIN_VALUE;
+
+  // every move, the ones taken back after the rest
+  int[] moves;
+  // how many moves are made, not taken back
+  int made;
+  // how many moves there are, taken back or not
+  int size;
+
+  MoveHistory() {
+    this.moves = new int[16];
+    this.made = 0;
+    this.size = 0;
+  }
+
+  // the move that turns the tile at the given index once clockwise
+  static int rotation(int tile) {
+    return tile;
+  }
+
+  // the move that moves the station along the given wire
+  static int stationMove(int wire) {
+    return STATION | wire;
+  }
+
+  // is the given move a move of the station?
+  static boolean isStation(int move) {
+    return (move & STATION) != 0;
+  }
+
+  // the tile the given rotation turns
+  static int tile(int move) {
+    return move;
+  }
+
+  // the wire the given station move moves along
+  static int wire(int move) {
+    return move & BoardStore.WIRES;
+  }
+
+  // to add the given move, forgetting the moves taken back
+  void record(int move) {
+    if (this.made == this.moves.length) {
+      this.moves = Arrays.copyOf(this.moves, this.made * 2);
+    }
+    this.moves[this.made] = move;
+    this.made += 1;
+    this.size = this.made;
+  }
+
+  // to forget every move
+  void clear() {
+    this.made = 0;
+    this.size = 0;
+  }
+
+  // is there a move to take back?
+  boolean canUndo() {
+    return this.made > 0;
+  }
+
+  // is there a move taken back to make again?
+  boolean canRedo() {
+    return this.made < this.size;
+  }
+
+  // to take back the last move made, returns it
+  int undo() {
+    this.made -= 1;
+    return this.moves[this.made];
+  }
+
+  // to make the last move taken back again, returns it
+  int redo() {
+    this.made += 1;
+    return this.moves[this.made - 1];
+  }
+}
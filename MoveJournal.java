@@ -0,0 +1,402 @@
+package lightemall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// to keep every move of a game made from a seed in a file as it is played, so
+// a game lost with the JVM can be played on from where it was: the seed and
+// the moves give back the exact board, station and clicks
+//
+// moves are handed to a thread of their own that writes them, and forces them
+// to disk, as many at a time as have piled up since its last write, so a
+// click never waits on the disk
+//
+// a journal file is, all numbers big-endian:
+//   int MAGIC, int VERSION, int width, int height, long seed, short length of
+//   the bias, the bias in UTF-8, then an int for every move: the index of the
+//   tile for a rotation, STATION with the wire the station moved along, or
+//   UNDO or REDO
+class MoveJournal implements AutoCloseable {
+  // the first bytes of every journal file, "LEJ1"
+  static final int MAGIC = 0x4C454A31;
+  static final int VERSION = 1;
+  // where the seed is in the file
+  static final int SEED_AT = 16;
+  // the bit that marks a move of the station
+  static final int STATION = Integer.MIN_VALUE;
+  // the moves that take back the last move, and make it again
+  static final int UNDO = STATION | 16;
+  static final int REDO = STATION | 32;
+
+  // the game the moves are played on, made by LightEngine.seeded
+  int width;
+  int height;
+  String bias;
+  long seed;
+  // where the file is, the open file, and how long its header is
+  Path path;
+  FileChannel channel;
+  long headerBytes;
+  // the moves written so far, and where the next ones go in the file
+  long written;
+  long end;
+  // the moves handed over and not yet taken by the writer
+  int[] pending;
+  int pendingCount;
+  // how many moves have been handed over in all
+  long appended;
+  // whether the journal is being closed
+  boolean closed;
+  // whether the journal is being started over, when moves wait to be handed
+  // over so they go into the new journal instead of being lost with the old
+  boolean restarting;
+  // the first write that failed, after which nothing more is written
+  IOException failure;
+  // the thread that writes the moves, null for a journal only read
+  Thread writer;
+
+  MoveJournal(Path path, FileChannel channel, int width, int height, String bias, long seed,
+      long headerBytes, long written) {
+    this.path = path;
+    this.channel = channel;
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+    this.seed = seed;
+    this.headerBytes = headerBytes;
+    this.written = written;
+    this.appended = written;
+    this.end = headerBytes + 4 * written;
+    this.pending = new int[64];
+  }
+
+  // to start the thread that writes the moves, returns this journal
+  MoveJournal writing() {
+    this.writer = new Thread(this::writeMoves, "move journal");
+    this.writer.setDaemon(true);
+    this.writer.start();
+    return this;
+  }
+
+  // to start a new journal at the given path, for a game of the given size and
+  // bias made from the given seed, replacing any journal already there
+  static MoveJournal create(Path path, int width, int height, String bias, long seed)
+      throws IOException {
+    FileChannel channel = MoveJournal.start(path, width, height, bias, seed);
+    return new MoveJournal(path, channel, width, height, bias, seed, channel.size(), 0)
+        .writing();
+  }
+  
+  // to write the header of a journal with no moves yet to the given path, and
+  // force it to disk, replacing any file already there
+  static FileChannel start(Path path, int width, int height, String bias, long seed)
+      throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      byte[] biasBytes = bias.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer header = ByteBuffer.allocate(SEED_AT + 10 + biasBytes.length);
+      header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putLong(seed)
+          .putShort((short) biasBytes.length).put(biasBytes);
+      header.flip();
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      channel.force(true);
+      return channel;
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // to open the journal at the given path to play on from, dropping a move
+  // that was only partly written when the game was lost
+  static MoveJournal open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      MoveJournal journal = MoveJournal.load(path, channel);
+      channel.truncate(journal.end);
+      return journal.writing();
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // to open the journal at the given path only to read its moves, leaving the
+  // file as it is: nothing more can be appended, and there is no writer
+  static MoveJournal read(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      MoveJournal journal = MoveJournal.load(path, channel);
+      journal.closed = true;
+      return journal;
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // to read the header of the journal in the given file, with every move that
+  // was written whole
+  static MoveJournal load(Path path, FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(SEED_AT + 10);
+    MoveJournal.readFully(channel, header, 0);
+    if (header.getInt(0) != MAGIC) {
+      throw new IOException("Not a journal file");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException("Unsupported journal version " + header.getInt(4));
+    }
+    ByteBuffer bias = ByteBuffer.allocate(header.getShort(SEED_AT + 8));
+    MoveJournal.readFully(channel, bias, header.capacity());
+    long headerBytes = header.capacity() + bias.capacity();
+    long written = (channel.size() - headerBytes) / 4;
+    return new MoveJournal(path, channel, header.getInt(8), header.getInt(12),
+        new String(bias.array(), StandardCharsets.UTF_8), header.getLong(SEED_AT),
+        headerBytes, written);
+  }
+
+  // to fill the given buffer from the given file, starting at the given position
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Journal file is cut short");
+      }
+    }
+  }
+
+  // the move that rotates the tile at the given index
+  static int rotation(int tile) {
+    return tile;
+  }
+
+  // the move that moves the station along the given wire
+  static int stationMove(int wire) {
+    return STATION | wire;
+  }
+
+  // to play the given move on the given game, returns whether it did anything
+  static boolean play(LightEngine engine, int move) {
+    if (move == UNDO) {
+      return engine.undo();
+    }
+    else if (move == REDO) {
+      return engine.redo();
+    }
+    else if ((move & STATION) != 0) {
+      return engine.moveStation(move & BoardStore.WIRES);
+    }
+    return engine.rotate(engine.store.rowOf(move), engine.store.colOf(move));
+  }
+
+  // to get the moves in the file so far
+  int[] moves() throws IOException {
+    this.flush();
+    ByteBuffer bytes = this.channel.map(FileChannel.MapMode.READ_ONLY, this.headerBytes,
+        this.end - this.headerBytes);
+    int[] moves = new int[(int) (this.end - this.headerBytes) / 4];
+    bytes.asIntBuffer().get(moves);
+    return moves;
+  }
+
+  // to make the game from the seed and play every move in the file on it
+  LightEngine restore() throws IOException {
+    LightEngine engine = LightEngine.seeded(this.width, this.height, this.bias, this.seed);
+    for (int move : this.moves()) {
+      MoveJournal.play(engine, move);
+    }
+    return engine;
+  }
+
+  // to hand the given move over to be written, never waiting on the disk
+  // but waiting out a restart, returns false, keeping nothing, once the
+  // journal is closed or a write has failed
+  synchronized boolean append(int move) {
+    while (this.restarting && !this.closed) {
+      try {
+        this.wait();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    if (this.closed) {
+      return false;
+    }
+    if (this.pendingCount == this.pending.length) {
+      this.pending = Arrays.copyOf(this.pending, this.pendingCount * 2);
+    }
+    this.pending[this.pendingCount] = move;
+    this.pendingCount += 1;
+    this.appended += 1;
+    if (this.pendingCount == 1) {
+      this.notifyAll();
+    }
+    return true;
+  }
+
+  // to write moves as they are handed over, until the journal is closed
+  void writeMoves() {
+    int[] writing = new int[64];
+    ByteBuffer bytes = ByteBuffer.allocate(4 * writing.length);
+    while (true) {
+      int count;
+      long at;
+      FileChannel channel;
+      synchronized (this) {
+        while (this.pendingCount == 0 && !this.closed) {
+          try {
+            this.wait();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (this.pendingCount == 0) {
+          return;
+        }
+        // taking every move handed over so far, to write them all at once
+        int[] taken = this.pending;
+        this.pending = writing;
+        writing = taken;
+        count = this.pendingCount;
+        this.pendingCount = 0;
+        at = this.end;
+        channel = this.channel;
+      }
+      if (bytes.capacity() < 4 * count) {
+        bytes = ByteBuffer.allocate(4 * writing.length);
+      }
+      bytes.clear();
+      bytes.asIntBuffer().put(writing, 0, count);
+      bytes.limit(4 * count);
+      IOException failure = null;
+      try {
+        while (bytes.hasRemaining()) {
+          channel.write(bytes, at + bytes.position());
+        }
+        channel.force(false);
+      }
+      catch (IOException e) {
+        failure = e;
+      }
+      synchronized (this) {
+        if (failure != null) {
+          this.failure = failure;
+          this.closed = true;
+        }
+        else {
+          this.written += count;
+          this.end = at + 4L * count;
+        }
+        this.notifyAll();
+        if (failure != null) {
+          return;
+        }
+      }
+    }
+  }
+
+  // to wait until every move handed over so far is on disk, throwing the
+  // write that failed if one did
+  synchronized void flush() throws IOException {
+    while (this.written < this.appended && this.failure == null) {
+      try {
+        this.wait();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing the journal", e);
+      }
+    }
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  // to start the journal over for a new game made from the given seed: the
+  // new journal is written next to the old one and moved over it, so a game
+  // lost on the way comes back as either the old game or the new one. Moves
+  // handed over meanwhile wait, and go into the new journal
+  void restart(long seed) throws IOException {
+    if (this.writer == null) {
+      throw new IOException("Journal was opened only to read");
+    }
+    synchronized (this) {
+      while (this.restarting) {
+        try {
+          this.wait();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while restarting the journal", e);
+        }
+      }
+      this.restarting = true;
+    }
+    try {
+      // nothing more is handed over, so this writes every move of the old game
+      this.flush();
+      Path next = this.path.resolveSibling(this.path.getFileName() + ".new");
+      FileChannel channel = MoveJournal.start(next, this.width, this.height, this.bias, seed);
+      try {
+        Files.move(next, this.path, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+      catch (IOException e) {
+        channel.close();
+        Files.deleteIfExists(next);
+        throw e;
+      }
+      synchronized (this) {
+        this.channel.close();
+        this.channel = channel;
+        this.seed = seed;
+        this.written = 0;
+        this.appended = 0;
+        this.end = this.headerBytes;
+      }
+    }
+    finally {
+      synchronized (this) {
+        this.restarting = false;
+        this.notifyAll();
+      }
+    }
+  }
+
+  // to write every move handed over, then close the file
+  public void close() throws IOException {
+    synchronized (this) {
+      this.closed = true;
+      this.notifyAll();
+    }
+    try {
+      if (this.writer != null) {
+        this.writer.join();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.channel.close();
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+}
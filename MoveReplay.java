@@ -0,0 +1,70 @@
+package lightemall;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// to play recorded moves on a board made from a seed as fast as they go, with
+// nothing drawn and no clock ticking, timing every move and noting how much of
+// the board is powered after it, so changes to powering the board can be
+// checked against real games and the moves that are slow can be found
+//
+// run with just the game's classes, no javalib, giving a journal kept by MoveJournal
+// and how many times to play it, the first time only warming up:
+//   java -cp . lightemall.MoveReplay game.lej 5
+class MoveReplay {
+  // the board the moves are played on, made by LightEngine.seeded
+  int width;
+  int height;
+  String bias;
+  long seed;
+
+  MoveReplay(int width, int height, String bias, long seed) {
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+    this.seed = seed;
+  }
+
+  // a replay of the board the given journal was kept for
+  MoveReplay(MoveJournal journal) {
+    this(journal.width, journal.height, journal.bias, journal.seed);
+  }
+
+  public static void main(String[] args) throws IOException {
+    int[] moves;
+    MoveReplay replay;
+    try (MoveJournal journal = MoveJournal.read(Paths.get(args[0]))) {
+      moves = journal.moves();
+      replay = new MoveReplay(journal);
+    }
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    for (int run = 0; run < runs; run++) {
+      ReplayReport report = replay.run(moves);
+      if (run > 0 || runs == 1) {
+        System.out.println(report.toString());
+      }
+    }
+  }
+
+  // to play the given moves, made by MoveJournal.rotation and
+  // MoveJournal.stationMove or UNDO and REDO, on a new board
+  ReplayReport run(int[] moves) {
+    LightEngine engine = LightEngine.seeded(this.width, this.height, this.bias, this.seed);
+    ReplayReport report = new ReplayReport(moves.length);
+    for (int k = 0; k < moves.length; k++) {
+      long start = System.nanoTime();
+      boolean played = MoveJournal.play(engine, moves[k]);
+      report.nanos[k] = System.nanoTime() - start;
+      report.played[k] = played;
+      report.powered[k] = engine.poweredCount();
+      if (engine.win && report.wonAt < 0) {
+        report.wonAt = k;
+      }
+    }
+    report.win = engine.win;
+    report.clicks = engine.clicks;
+    report.lit = engine.poweredCount();
+    report.tiles = engine.store.size();
+    return report;
+  }
+}
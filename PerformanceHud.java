@@ -0,0 +1,109 @@
+package lightemall;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javalib.worldimages.*;
+
+// to keep how long frames and clicks take, how many tiles each power update
+// looks at and how many bytes each frame allocates, for drawing over the game
+// while it is played: nothing is recorded while it is off, and recording is a
+// few instructions into fixed buckets, so it can be left on to look into lag
+class PerformanceHud {
+  // the nanoseconds each makeScene took
+  Histogram frames;
+  // the nanoseconds each click took to rotate its tile and update the power
+  Histogram clicks;
+  // how many tiles each click's power update looked at
+  Histogram visited;
+  // the bytes each makeScene allocated, empty if the JVM can't tell
+  Histogram frameBytes;
+  // whether anything is recorded and drawn
+  boolean on;
+  // for the bytes allocated by this thread, null if the JVM can't tell
+  com.sun.management.ThreadMXBean allocations;
+
+  PerformanceHud() {
+    this.frames = new Histogram();
+    this.clicks = new Histogram();
+    this.visited = new Histogram();
+    this.frameBytes = new Histogram();
+    this.on = false;
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      this.allocations = (com.sun.management.ThreadMXBean) threads;
+    }
+  }
+
+  // to turn recording and drawing on, starting over, or off
+  void toggle() {
+    this.on = !this.on;
+    if (this.on) {
+      this.frames.clear();
+      this.clicks.clear();
+      this.visited.clear();
+      this.frameBytes.clear();
+    }
+  }
+
+  // to get the time something being recorded starts at, 0 when off
+  long start() {
+    return this.on ? System.nanoTime() : 0;
+  }
+
+  // to get how many bytes this thread has allocated so far, 0 when off or
+  // when the JVM can't tell
+  long allocated() {
+    if (!this.on || this.allocations == null) {
+      return 0;
+    }
+    return this.allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // to record a frame that started at the given time and allocated bytes
+  void frame(long start, long bytesBefore) {
+    if (this.on) {
+      this.frames.record(System.nanoTime() - start);
+      if (this.allocations != null) {
+        this.frameBytes.record(this.allocated() - bytesBefore);
+      }
+    }
+  }
+
+  // to record a click that started at the given time, and updated the power
+  // by looking at the given number of tiles
+  void click(long start, int tiles) {
+    if (this.on) {
+      this.clicks.record(System.nanoTime() - start);
+      this.visited.record(tiles);
+    }
+  }
+
+  // to show the p50 and p99 of everything recorded, one line each
+  String[] lines() {
+    return new String[] {
+      String.format("frame p50 %s p99 %s", PerformanceHud.micros(this.frames.percentile(50)),
+          PerformanceHud.micros(this.frames.percentile(99))),
+      String.format("click p50 %s p99 %s", PerformanceHud.micros(this.clicks.percentile(50)),
+          PerformanceHud.micros(this.clicks.percentile(99))),
+      String.format("tiles/click p50 %d p99 %d", this.visited.percentile(50),
+          this.visited.percentile(99)),
+      this.allocations == null ? "bytes/frame n/a"
+          : String.format("bytes/frame p50 %d p99 %d", this.frameBytes.percentile(50),
+              this.frameBytes.percentile(99))};
+  }
+
+  // to show the given nanoseconds in microseconds
+  static String micros(long nanos) {
+    return String.format("%.1f us", nanos / 1e3);
+  }
+
+  // to draw the lines, one above the other
+  WorldImage image() {
+    WorldImage image = new EmptyImage();
+    for (String line : this.lines()) {
+      image = new AboveImage(image, new TextImage(line, 12, FontStyle.BOLD, Color.DARK_GRAY));
+    }
+    return image;
+  }
+}
@@ -0,0 +1,414 @@
+package lightemall;
+
+import java.util.*;
+
+// to keep track of which tiles of a board are powered, as a tree where each
+// powered tile points at the tile it got its power from, so that rotating a
+// tile only has to look at the tiles whose power goes through it
+class PowerEngine {
+  // the parent of a tile that isn't powered
+  static final int NONE = -1;
+  // the radius when power goes as far as the wires do
+  static final int NO_RADIUS = Integer.MAX_VALUE;
+  // the four wires, for looking at every neighbor of a tile
+  static final int[] DIRECTIONS = {BoardStore.TOP, BoardStore.RIGHT,
+    BoardStore.BOTTOM, BoardStore.LEFT};
+
+  // the board being powered
+  BoardStore store;
+  // the tile each powered tile got its power from, the
+  // station is its own parent and unpowered tiles have NONE
+  int[] parents;
+  // the index of the tile the power station is on
+  int station;
+  // how many tiles are powered
+  int powered;
+  // for spreading power to tiles
+  BfsKernel search;
+  // for finding the tiles cut off by a rotation
+  BfsKernel cutSearch;
+  // how many wires away from the station power goes
+  int radius;
+  // how many wires each powered tile is from the station along the shortest
+  // way, null while power isn't limited by a radius
+  int[] distances;
+  // the powered tiles relax starts from, each with its distance in the high
+  // half so sorting puts the nearest first, and how many there are
+  long[] seeds;
+  int seedCount;
+
+  PowerEngine(BoardStore store) {
+    this.store = store;
+    this.parents = new int[store.size()];
+    Arrays.fill(this.parents, NONE);
+    this.station = 0;
+    this.powered = 0;
+    this.search = new BfsKernel(store.size());
+    this.cutSearch = new BfsKernel(store.size());
+    this.radius = NO_RADIUS;
+    this.distances = null;
+    this.seeds = new long[16];
+    this.seedCount = 0;
+  }
+
+  // to power every tile connected to the station at the given index,
+  // starting over from scratch
+  void relightAll(int station) {
+    this.station = station;
+    Arrays.fill(this.parents, NONE);
+    this.store.clearPower();
+    this.powered = 0;
+
+    this.search.reset();
+    this.cutSearch.reset();
+    this.powerFrom(station, station);
+    this.flood();
+  }
+
+  // to rotate the tile at the given index once, and update the power of
+  // only the tiles that were or now are powered through it
+  void rotate(int index) {
+    this.rotate(index, 1);
+  }
+
+  // to rotate the tile at the given index clockwise the given number of times
+  // at once, and update the power of only the tiles that were or now are
+  // powered through it, or that it brings nearer when there is a radius
+  void rotate(int index, int times) {
+    int before = this.connections(index);
+    this.store.rotate(index, times);
+    int after = this.connections(index);
+
+    // tiles that lost the connection their power came through
+    this.cutSearch.reset();
+    for (int wire : DIRECTIONS) {
+      if ((before & wire) != 0 && (after & wire) == 0) {
+        int other = this.store.neighbor(index, wire);
+        if (this.parents[other] == index) {
+          this.cut(other);
+        }
+        else if (this.parents[index] == other) {
+          this.cut(index);
+        }
+      }
+    }
+    if (this.distances != null) {
+      this.rejoin(index, before, after);
+      return;
+    }
+
+    this.search.reset();
+    // cut tiles that are still wired to a powered tile get power back from it
+    for (int k = 0; k < this.cutSearch.marked; k++) {
+      int tile = this.cutSearch.markedAt(k);
+      for (int wire : DIRECTIONS) {
+        if (this.parents[tile] == NONE && this.store.connected(tile, wire)) {
+          int other = this.store.neighbor(tile, wire);
+          if (this.parents[other] != NONE) {
+            this.powerFrom(tile, other);
+          }
+        }
+      }
+    }
+    // new connections can carry power either way
+    for (int wire : DIRECTIONS) {
+      if ((after & wire) != 0 && (before & wire) == 0) {
+        int other = this.store.neighbor(index, wire);
+        if (this.parents[index] != NONE && this.parents[other] == NONE) {
+          this.powerFrom(other, index);
+        }
+        else if (this.parents[other] != NONE && this.parents[index] == NONE) {
+          this.powerFrom(index, other);
+        }
+      }
+    }
+    this.flood();
+  }
+
+  // to move the station to the given tile, which has to be powered: with no
+  // radius the same tiles stay powered and only the parents on the way from
+  // it back to the old station are turned around, with one every distance
+  // changes and only the tiles at the edge of the radius change power
+  void moveStation(int next) {
+    if (this.distances != null) {
+      this.recenter(next);
+      return;
+    }
+    int child = next;
+    int parent = this.parents[next];
+    this.parents[next] = next;
+    while (child != this.station) {
+      int grandparent = this.parents[parent];
+      this.parents[parent] = child;
+      child = parent;
+      parent = grandparent;
+    }
+    this.station = next;
+  }
+
+  // to move the station to the given tile, powered and wired to it, with
+  // power limited by the radius: the tiles powered through the new station
+  // are a wire nearer and the rest a wire farther, which is exact on a tree;
+  // where a loop gives the far side a shorter way round, relax finds it from
+  // the near side, so only tiles crossing the edge of the radius change power
+  void recenter(int next) {
+    int last = this.station;
+    this.parents[next] = next;
+    this.seedCount = 0;
+    // the tiles powered through the new station, marked in cutSearch, any
+    // of them wired to a tile that isn't its parent or child may be a
+    // shorter way to that tile now
+    this.cutSearch.reset();
+    this.cutSearch.offer(next);
+    while (!this.cutSearch.isEmpty()) {
+      int tile = this.cutSearch.poll();
+      this.distances[tile] -= 1;
+      boolean seed = false;
+      for (int wire : DIRECTIONS) {
+        if (this.store.inBounds(tile, wire)) {
+          int other = this.store.neighbor(tile, wire);
+          if (this.parents[other] == tile) {
+            this.cutSearch.offer(other);
+          }
+          else {
+            seed = seed || other != last && this.store.connected(tile, wire)
+                && this.parents[tile] != other;
+          }
+        }
+      }
+      if (seed) {
+        this.seed(tile);
+      }
+    }
+    // the rest, marked in search, now powered through the old station, only
+    // those that were at the edge pushed past it, none of them powering
+    // another tile
+    this.search.reset();
+    this.search.offer(last);
+    while (!this.search.isEmpty()) {
+      int tile = this.search.poll();
+      this.distances[tile] += 1;
+      if (this.distances[tile] > this.radius) {
+        this.parents[tile] = NONE;
+        this.store.setPowered(tile, false);
+        this.powered -= 1;
+        continue;
+      }
+      for (int wire : DIRECTIONS) {
+        if (this.store.inBounds(tile, wire)
+            && this.parents[this.store.neighbor(tile, wire)] == tile) {
+          this.search.offer(this.store.neighbor(tile, wire));
+        }
+      }
+    }
+    this.parents[last] = next;
+    this.station = next;
+    this.relax();
+  }
+
+  // to power again, each at its shortest distance, the tiles cut off by a
+  // rotation of the given tile from the given connections to the given ones
+  // that are still in the radius, and to bring nearer the tiles its new
+  // connections are a shorter way to: the tiles left powered kept their way
+  // to the station, and losing wires never brings a tile nearer, so only the
+  // tiles next to the cut ones and the ends of the new wires need looking at
+  void rejoin(int index, int before, int after) {
+    this.seedCount = 0;
+    for (int k = 0; k < this.cutSearch.marked; k++) {
+      int tile = this.cutSearch.markedAt(k);
+      for (int wire : DIRECTIONS) {
+        if (this.store.connected(tile, wire)) {
+          this.seed(this.store.neighbor(tile, wire));
+        }
+      }
+    }
+    for (int wire : DIRECTIONS) {
+      if ((after & wire) != 0 && (before & wire) == 0) {
+        this.seed(index);
+        this.seed(this.store.neighbor(index, wire));
+      }
+    }
+    this.relax();
+  }
+
+  // to add the given tile to the tiles relax starts from, if it is powered
+  void seed(int tile) {
+    if (this.parents[tile] == NONE) {
+      return;
+    }
+    if (this.seedCount == this.seeds.length) {
+      this.seeds = Arrays.copyOf(this.seeds, this.seedCount * 2);
+    }
+    this.seeds[this.seedCount] = (long) this.distances[tile] << 32 | tile;
+    this.seedCount += 1;
+  }
+
+  // to power every tile the seeds reach within the radius, and bring nearer
+  // every powered tile they are a shorter way to: the seeds and the tiles
+  // they reach are taken nearest first, like one breadth-first search
+  // started from each seed at its own distance, so every tile it reaches is
+  // at its shortest distance the first time, and it never goes past them
+  void relax() {
+    Arrays.sort(this.seeds, 0, this.seedCount);
+    this.search.reset();
+    int next = 0;
+    while (next < this.seedCount || !this.search.isEmpty()) {
+      if (this.search.isEmpty() || next < this.seedCount
+          && this.seeds[next] >>> 32 <= this.distances[this.search.peek()]) {
+        int tile = (int) this.seeds[next];
+        next += 1;
+        // a seed brought nearer is already queued
+        if (!this.search.isVisited(tile)) {
+          this.spread(tile);
+        }
+      }
+      else {
+        this.spread(this.search.poll());
+      }
+    }
+  }
+
+  // to power the unpowered tiles wired to the given powered tile and bring
+  // nearer the ones it is a shorter way to, queueing them up in search,
+  // unless it is already at the radius
+  void spread(int tile) {
+    if (this.distances[tile] >= this.radius) {
+      return;
+    }
+    for (int wire : DIRECTIONS) {
+      if (this.store.connected(tile, wire)) {
+        int other = this.store.neighbor(tile, wire);
+        if (this.parents[other] == NONE) {
+          this.powerFrom(other, tile);
+        }
+        else if (this.distances[other] > this.distances[tile] + 1) {
+          this.parents[other] = tile;
+          this.distances[other] = this.distances[tile] + 1;
+          this.search.offer(other);
+        }
+      }
+    }
+  }
+
+  // to find how many wires the longest path of the given wiring, a spanning
+  // tree, has, with two breadth-first searches: the tile farthest from any
+  // tile is an end of a longest path; the searches have memory of their own,
+  // so the power is left as it is
+  int diameter(byte[] wires) {
+    int[] distances = new int[wires.length];
+    BfsKernel search = new BfsKernel(wires.length);
+    int end = this.farthest(wires, 0, distances, search);
+    return distances[this.farthest(wires, end, distances, search)];
+  }
+
+  // to find the tile farthest from the given tile along the given wiring,
+  // filling in how far every tile is from it, with the given search
+  int farthest(byte[] wires, int start, int[] distances, BfsKernel search) {
+    search.reset();
+    search.offer(start);
+    distances[start] = 0;
+    int last = start;
+    while (!search.isEmpty()) {
+      last = search.poll();
+      for (int wire : DIRECTIONS) {
+        if ((wires[last] & wire) != 0 && this.store.inBounds(last, wire)) {
+          int other = this.store.neighbor(last, wire);
+          if (search.offer(other)) {
+            distances[other] = distances[last] + 1;
+          }
+        }
+      }
+    }
+    return last;
+  }
+
+  // how many tiles the last update of the power looked at
+  int visited() {
+    return this.search.marked + this.cutSearch.marked;
+  }
+
+  // how many tiles are powered
+  public int poweredCount() {
+    return this.powered;
+  }
+
+  // how many tiles there are to power
+  public int tileCount() {
+    return this.store.size();
+  }
+
+  // how much of the board is powered, from 0 to 100
+  public int percentLit() {
+    return (int) (100L * this.powered / this.store.size());
+  }
+
+  // is every tile powered?
+  boolean allPowered() {
+    return this.powered == this.store.size();
+  }
+
+  // to get the wires of the tile at the given index that are
+  // connected to a neighbor
+  int connections(int index) {
+    int wires = 0;
+    for (int wire : DIRECTIONS) {
+      if (this.store.connected(index, wire)) {
+        wires |= wire;
+      }
+    }
+    return wires;
+  }
+
+  // to power off the given tile and every tile that got its power through it,
+  // marking them in cutSearch
+  void cut(int root) {
+    this.cutSearch.offer(root);
+    this.parents[root] = NONE;
+    this.store.setPowered(root, false);
+    this.powered -= 1;
+    while (!this.cutSearch.isEmpty()) {
+      int next = this.cutSearch.poll();
+      for (int wire : DIRECTIONS) {
+        if (this.store.inBounds(next, wire)) {
+          int child = this.store.neighbor(next, wire);
+          if (this.parents[child] == next) {
+            this.parents[child] = NONE;
+            this.store.setPowered(child, false);
+            this.powered -= 1;
+            this.cutSearch.offer(child);
+          }
+        }
+      }
+    }
+  }
+
+  // to power the given tile from the given parent and queue it up in search
+  void powerFrom(int tile, int parent) {
+    if (this.distances != null) {
+      this.distances[tile] = tile == parent ? 0 : this.distances[parent] + 1;
+    }
+    this.parents[tile] = parent;
+    this.store.setPowered(tile, true);
+    this.powered += 1;
+    this.search.offer(tile);
+  }
+
+  // to power every unpowered tile connected to a tile queued up in search,
+  // no farther from the station than the radius
+  void flood() {
+    while (!this.search.isEmpty()) {
+      int next = this.search.poll();
+      if (this.distances != null && this.distances[next] >= this.radius) {
+        continue;
+      }
+      for (int wire : DIRECTIONS) {
+        if (this.store.connected(next, wire)) {
+          int other = this.store.neighbor(next, wire);
+          if (this.parents[other] == NONE) {
+            this.powerFrom(other, next);
+          }
+        }
+      }
+    }
+  }
+}
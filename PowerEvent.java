@@ -0,0 +1,13 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.Power")
+@Label("Light Em Up")
+@Description("Powering the whole board from the station")
+class PowerEvent extends BoardEvent {
+  @Label("Tiles Powered")
+  int powered;
+}
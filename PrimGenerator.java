@@ -0,0 +1,92 @@
+package lightemall;
+
+import java.util.*;
+
+// to wire up a board with randomized Prim's algorithm: the tree grows from
+// the top left tile along the cheapest edge leaving it, kept in a binary heap
+// of primitive edge keys, so there is no list of edges to sort
+class PrimGenerator extends AGenerator {
+
+  // to make a new PrimGenerator
+  public BoardGenerator fresh() {
+    return new PrimGenerator();
+  }
+
+  // to wire up the tiles of the given board by growing a tree from the top left
+  public void generate(BoardStore store, Random rand, String bias) {
+    int against = AGenerator.against(bias);
+    boolean[] inTree = new boolean[store.size()];
+    // every edge is added at most once, from the first of its tiles in the tree
+    long[] heap = new long[2 * store.size()];
+    int count = this.grow(store, rand, against, inTree, heap, 0, 0);
+
+    while (count > 0) {
+      long key = heap[0];
+      count -= 1;
+      heap[0] = heap[count];
+      PrimGenerator.siftDown(heap, count, 0);
+
+      int edge = (int) key;
+      int from = edge >> 1;
+      int wire = (edge & 1) == 0 ? BoardStore.RIGHT : BoardStore.BOTTOM;
+      int to = store.neighbor(from, wire);
+      if (inTree[from] != inTree[to]) {
+        AGenerator.join(store, from, wire);
+        count = this.grow(store, rand, against, inTree, heap, count, inTree[from] ? to : from);
+      }
+    }
+  }
+
+  // to add the given tile to the tree and push a randomly weighted key for every
+  // edge from it to a tile outside the tree, returns the new size of the heap
+  int grow(BoardStore store, Random rand, int against, boolean[] inTree,
+      long[] heap, int count, int tile) {
+    inTree[tile] = true;
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if (store.inBounds(tile, wire) && !inTree[store.neighbor(tile, wire)]) {
+        // edges are named by their left or top tile
+        int edge;
+        if (wire == BoardStore.RIGHT || wire == BoardStore.BOTTOM) {
+          edge = tile * 2 + (wire == BoardStore.BOTTOM ? 1 : 0);
+        }
+        else {
+          edge = store.neighbor(tile, wire) * 2 + (wire == BoardStore.TOP ? 1 : 0);
+        }
+        long penalty = AGenerator.isAgainst(wire, against) ? 1 : 0;
+        long weight = rand.nextInt(1 << 30);
+        heap[count] = (penalty << 62) | (weight << 32) | edge;
+        PrimGenerator.siftUp(heap, count);
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  // to move the key at the given position up the heap until its parent is smaller
+  static void siftUp(long[] heap, int position) {
+    long key = heap[position];
+    while (position > 0 && heap[(position - 1) / 2] > key) {
+      heap[position] = heap[(position - 1) / 2];
+      position = (position - 1) / 2;
+    }
+    heap[position] = key;
+  }
+
+  // to move the key at the given position down the heap, of the given size,
+  // until its children are bigger
+  static void siftDown(long[] heap, int count, int position) {
+    long key = heap[position];
+    while (position * 2 + 1 < count) {
+      int child = position * 2 + 1;
+      if (child + 1 < count && heap[child + 1] < heap[child]) {
+        child += 1;
+      }
+      if (heap[child] >= key) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = key;
+  }
+}
@@ -0,0 +1,88 @@
+package lightemall;
+
+// to represent a scrambled board that can be solved exactly one way
+class Puzzle {
+  // where the puzzle is in its batch, and the seed its board was made from
+  int index;
+  long seed;
+  // the size and bias of the board
+  int width;
+  int height;
+  String bias;
+  // the scrambled wires of each tile, in row-major order
+  byte[] wires;
+  // how many times each tile has to be turned clockwise to solve the board
+  int[] rotations;
+
+  Puzzle(int index, long seed, int width, int height, String bias, byte[] wires,
+      int[] rotations) {
+    this.index = index;
+    this.seed = seed;
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+    this.wires = wires;
+    this.rotations = rotations;
+  }
+
+  // a puzzle of the wires now in the given store, solved by the given rotations
+  Puzzle(int index, long seed, String bias, BoardStore store, int[] rotations) {
+    this(index, seed, store.width, store.height, bias, new byte[store.size()], rotations);
+    for (int i = 0; i < this.wires.length; i++) {
+      this.wires[i] = (byte) store.wires(i);
+    }
+  }
+
+  // to get a new store with the scrambled wires
+  BoardStore store() {
+    BoardStore store = new BoardStore(this.width, this.height);
+    for (int i = 0; i < this.wires.length; i++) {
+      store.setWires(i, this.wires[i]);
+    }
+    return store;
+  }
+
+  // to get the wires of each tile once the board is solved
+  byte[] solved() {
+    byte[] solved = new byte[this.wires.length];
+    for (int i = 0; i < solved.length; i++) {
+      solved[i] = (byte) BoardStore.ROTATIONS[this.rotations[i]][this.wires[i]];
+    }
+    return solved;
+  }
+
+  // how many tiles have to be turned at all
+  int turned() {
+    int turned = 0;
+    for (int i = 0; i < this.wires.length; i++) {
+      if (BoardStore.ROTATIONS[this.rotations[i]][this.wires[i]] != this.wires[i]) {
+        turned += 1;
+      }
+    }
+    return turned;
+  }
+
+  // the fewest clicks that solve the board
+  int clicks() {
+    int clicks = 0;
+    for (int rotation : this.rotations) {
+      clicks += rotation;
+    }
+    return clicks;
+  }
+
+  // to show the puzzle as a line about it, then a line of hex digits for each
+  // row of the board, one digit of wires per tile
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append(String.format("puzzle %d %dx%d %s seed %d clicks %d%n", this.index, this.width,
+        this.height, this.bias, this.seed, this.clicks()));
+    for (int row = 0; row < this.height; row++) {
+      for (int col = 0; col < this.width; col++) {
+        text.append(Character.forDigit(this.wires[row * this.width + col], 16));
+      }
+      text.append(System.lineSeparator());
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,154 @@
+package lightemall;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// to make many puzzles of one size and bias at once, on every core: each
+// puzzle only keeps a board that can be solved exactly one way and needs
+// enough tiles turned, trying the seeds made for it one after another, so a
+// batch is the same no matter how many threads make it
+//
+// run with just the game's classes, no javalib, giving the width, height and how
+// many puzzles to make, and then the bias, seed and a board file to write the
+// puzzles to if wanted, otherwise they are printed:
+//   java -cp . lightemall.PuzzleBatch 16 16 1000 normal 2024 pack.lea
+class PuzzleBatch {
+  // the most boards tried for one puzzle before giving up on it
+  static final int TRIES = 1000;
+  // how many finished puzzles can wait for the sink before the threads wait too
+  static final int CAPACITY = 64;
+  // how long the sink waits for a puzzle before checking the threads are fine
+  static final long POLL_MILLIS = 100;
+
+  // the size and bias of every puzzle
+  int width;
+  int height;
+  String bias;
+  // every puzzle's seeds come from this one
+  long seed;
+  // makes a new generator for each board, since generators keep their edges
+  Supplier<BoardGenerator> generators;
+  // how many threads make puzzles
+  int threads;
+  // how many finished puzzles can wait for the sink
+  int capacity;
+  // the least share of the tiles, out of 100, that have to need turning
+  int minTurned;
+
+  PuzzleBatch(int width, int height, String bias, long seed,
+      Supplier<BoardGenerator> generators) {
+    this.width = width;
+    this.height = height;
+    this.bias = bias;
+    this.seed = seed;
+    this.generators = generators;
+    this.threads = Runtime.getRuntime().availableProcessors();
+    this.capacity = CAPACITY;
+    this.minTurned = 50;
+  }
+
+  public static void main(String[] args) throws InterruptedException, IOException {
+    int width = Integer.parseInt(args[0]);
+    int height = Integer.parseInt(args[1]);
+    int count = Integer.parseInt(args[2]);
+    String bias = args.length > 3 ? args[3] : "normal";
+    long seed = args.length > 4 ? Long.parseLong(args[4]) : 2024;
+    PuzzleBatch batch = new PuzzleBatch(width, height, bias, seed, KruskalGenerator::new);
+
+    long start = System.nanoTime();
+    if (args.length > 5) {
+      // in the order of the puzzles, not the order they were finished in
+      BoardRecord[] boards = new BoardRecord[count];
+      batch.run(count, puzzle -> boards[puzzle.index] = new BoardRecord(puzzle));
+      BoardFile.write(Paths.get(args[5]), Arrays.asList(boards));
+    }
+    else {
+      batch.run(count, puzzle -> System.out.print(puzzle.toString()));
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.err.println(String.format("%d puzzles in %.2f s, %.1f puzzles/s on %d threads",
+        count, seconds, count / seconds, batch.threads));
+  }
+
+  // to get the seed of the given try at the puzzle with the given index
+  long seedOf(int index, int attempt) {
+    return BoruvkaGenerator.mix(this.seed + BoruvkaGenerator.mix((long) index * TRIES + attempt));
+  }
+
+  // to make the puzzle with the given index from the first of its seeds
+  // whose board has exactly one solution and enough tiles to turn
+  Puzzle make(int index) {
+    for (int attempt = 0; attempt < TRIES; attempt++) {
+      long seed = this.seedOf(index, attempt);
+      LightEngine engine = new LightEngine(this.width, this.height, this.bias,
+          new Random(seed), this.generators.get());
+      // every thread of the batch is already busy, so each solves alone
+      BoardSolver solver = new BoardSolver(engine.store, 1);
+      if (solver.countSolutions(2) == 1) {
+        Puzzle puzzle = new Puzzle(index, seed, this.bias, engine.store, solver.solution);
+        if (puzzle.turned() * 100 >= this.minTurned * engine.store.size()) {
+          return puzzle;
+        }
+      }
+    }
+    throw new IllegalStateException("No board with one solution in " + TRIES + " tries");
+  }
+
+  // to make the given number of puzzles on every thread, handing each to the
+  // given sink on this thread as it is finished, so not in order; the threads
+  // wait whenever the sink has fallen capacity puzzles behind
+  void run(int count, PuzzleSink sink) throws InterruptedException {
+    BlockingQueue<Puzzle> finished = new ArrayBlockingQueue<Puzzle>(this.capacity);
+    AtomicInteger next = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    ArrayList<Future<?>> workers = new ArrayList<Future<?>>();
+    for (int t = 0; t < this.threads; t++) {
+      workers.add(pool.submit(() -> {
+        for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+          finished.put(this.make(i));
+        }
+        return null;
+      }));
+    }
+    try {
+      int taken = 0;
+      while (taken < count) {
+        Puzzle puzzle = finished.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (puzzle != null) {
+          sink.accept(puzzle);
+          taken += 1;
+        }
+        else {
+          PuzzleBatch.checkWorkers(workers);
+        }
+      }
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // to throw whatever stopped any of the given threads early
+  static void checkWorkers(ArrayList<Future<?>> workers) throws InterruptedException {
+    for (Future<?> worker : workers) {
+      if (worker.isDone()) {
+        try {
+          worker.get();
+        }
+        catch (ExecutionException e) {
+          throw new IllegalStateException("A puzzle couldn't be made", e.getCause());
+        }
+      }
+    }
+  }
+}
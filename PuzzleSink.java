@@ -0,0 +1,7 @@
+package lightemall;
+
+// to represent somewhere finished puzzles go
+interface PuzzleSink {
+  // to take the given puzzle, no more are handed over until this returns
+  void accept(Puzzle puzzle);
+}
@@ -0,0 +1,85 @@
+package lightemall;
+
+import javalib.worldimages.*;
+
+// to represent one branch of a BoardRenderer, the image of the tiles in the
+// given rows and columns, split into two halves until it is a single tile
+class RenderNode {
+  // the rows and columns covered, including the first but not the last
+  int row0;
+  int row1;
+  int col0;
+  int col1;
+  // the two halves, both null for a single tile
+  RenderNode first;
+  RenderNode second;
+  // whether the halves are stacked rows, or columns side by side
+  boolean stacked;
+  // the image as it was last drawn
+  WorldImage image;
+  // whether a tile in this branch changed since it was last drawn
+  boolean dirty;
+
+  RenderNode(int row0, int row1, int col0, int col1) {
+    this.row0 = row0;
+    this.row1 = row1;
+    this.col0 = col0;
+    this.col1 = col1;
+    this.dirty = true;
+    this.image = null;
+    // splitting rows first, so every half of a branch has the same width
+    this.stacked = row1 - row0 > 1;
+    if (this.stacked) {
+      int mid = (row0 + row1) / 2;
+      this.first = new RenderNode(row0, mid, col0, col1);
+      this.second = new RenderNode(mid, row1, col0, col1);
+    }
+    else if (col1 - col0 > 1) {
+      int mid = (col0 + col1) / 2;
+      this.first = new RenderNode(row0, row1, col0, mid);
+      this.second = new RenderNode(row0, row1, mid, col1);
+    }
+    else {
+      this.first = null;
+      this.second = null;
+    }
+  }
+
+  // is the tile at the given row and column in this branch?
+  boolean contains(int row, int col) {
+    return row >= this.row0 && row < this.row1 && col >= this.col0 && col < this.col1;
+  }
+
+  // to mark this branch, and the half holding the tile at the
+  // given row and column, as needing to be drawn again
+  void markDirty(int row, int col) {
+    this.dirty = true;
+    if (this.first != null) {
+      if (this.first.contains(row, col)) {
+        this.first.markDirty(row, col);
+      }
+      else {
+        this.second.markDirty(row, col);
+      }
+    }
+  }
+
+  // to draw this branch again if anything in it changed, and return its image
+  WorldImage draw(BoardStore store, TileImageCache tileImages) {
+    if (this.dirty) {
+      if (this.first == null) {
+        this.image = tileImages.get(store.cells[store.index(this.row0, this.col0)]);
+      }
+      else if (this.stacked) {
+        this.image = new AboveImage(this.first.draw(store, tileImages),
+            this.second.draw(store, tileImages));
+      }
+      else {
+        this.image = new BesideImage(this.first.draw(store, tileImages),
+            this.second.draw(store, tileImages));
+      }
+      this.dirty = false;
+    }
+    return this.image;
+  }
+}
@@ -0,0 +1,71 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent what happened when moves were played: for every move whether
+// it did anything, how many tiles were powered after it and how long it took
+class ReplayReport {
+  boolean[] played;
+  int[] powered;
+  long[] nanos;
+  // the move that won the game, -1 if none did
+  int wonAt;
+  // how the game ended up
+  boolean win;
+  int clicks;
+  // how many tiles were powered at the end, out of how many
+  int lit;
+  int tiles;
+
+  ReplayReport(int moves) {
+    this.played = new boolean[moves];
+    this.powered = new int[moves];
+    this.nanos = new long[moves];
+    this.wonAt = -1;
+  }
+
+  // how many moves there were
+  int moves() {
+    return this.nanos.length;
+  }
+
+  // how long all the moves took, in nanoseconds
+  long totalNanos() {
+    long total = 0;
+    for (long time : this.nanos) {
+      total += time;
+    }
+    return total;
+  }
+
+  // to get how long the given percentile of moves took at most, in nanoseconds
+  long percentile(int percent) {
+    if (this.nanos.length == 0) {
+      return 0;
+    }
+    long[] sorted = this.nanos.clone();
+    Arrays.sort(sorted);
+    return ReplayReport.percentile(sorted, percent);
+  }
+
+  // to find the given percentile of the sorted samples
+  static long percentile(long[] sorted, int percent) {
+    int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  // to show the moves played, how the game ended and how long the moves took
+  public String toString() {
+    int played = 0;
+    for (boolean move : this.played) {
+      played += move ? 1 : 0;
+    }
+    double seconds = this.totalNanos() / 1e9;
+    return String.format("%d moves, %d played, %d clicks, %d of %d tiles powered, %s%n"
+        + "%.3f s, %.0f moves/s, p50 %.2f us, p90 %.2f us, p99 %.2f us, max %.2f us",
+        this.moves(), played, this.clicks, this.lit, this.tiles,
+        this.win ? "won at move " + this.wonAt : "not won",
+        seconds, this.moves() / Math.max(seconds, 1e-9), this.percentile(50) / 1e3,
+        this.percentile(90) / 1e3, this.percentile(99) / 1e3, this.percentile(100) / 1e3);
+  }
+}
@@ -0,0 +1,14 @@
+package lightemall;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lightemall.Restart")
+@Label("Restart")
+@Description("Starting over on a new board")
+class RestartEvent extends BoardEvent {
+  @Label("Prefetched")
+  @Description("Whether the board was made ahead and only copied in")
+  boolean prefetched;
+}
@@ -0,0 +1,27 @@
+package lightemall;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// to represent undecided tiles that can be searched apart from the rest of
+// the board: no guess in any other part changes which of their rotations
+// work, so the board's solutions are every mix of one solution from each part
+class SolverPart {
+  // where the part is in the solver's list of parts
+  int index;
+  // the tiles of the part, in row-major order
+  int[] tiles;
+  // how many searches of the part have started, each in its own random order
+  AtomicInteger searches;
+  // whether a search of the part has finished, so the others can stop
+  volatile boolean finished;
+  // how many ways the part can be solved, as far as the finished search counted
+  int found;
+
+  SolverPart(int index, int[] tiles) {
+    this.index = index;
+    this.tiles = tiles;
+    this.searches = new AtomicInteger();
+    this.finished = false;
+    this.found = 0;
+  }
+}
@@ -0,0 +1,931 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent what is known about a board part way through solving it:
+// the rotations each tile could still have, which wires are known to be there
+// or not, and the groups of tiles already known to be wired together.
+// every change is written down on a trail so guesses can be undone
+class SolverState {
+  // what each entry on the trail undoes
+  static final int DOMAIN = 0;
+  static final int SETTLE = 1;
+  static final int UNION = 2;
+  // how many of the latest changes are looked through for a tile to guess next
+  static final int RECENT = 64;
+  // how many tiles that ran out of rotations are remembered
+  static final int CONFLICTS = 16;
+  // how many broken guesses the search makes before starting over, times the
+  // next number of the Luby sequence every time, and the seed of the random
+  // order the first search of a part tries rotations in, the searches racing
+  // it taking the seeds after
+  static final long RESTART_FAILS = 3000;
+  static final long RESTART_SEED = 1;
+  // what is left of the tiles a search guesses at is split again after a
+  // guess for every this many of them
+  static final int SPLIT_SHARE = 16;
+
+  // the board being solved
+  BoardStore store;
+  // bit r set if the tile could still need r clockwise rotations
+  byte[] domains;
+  // the wires of each tile that are known to be there or not
+  byte[] known;
+  // which of the known wires are there
+  byte[] wires;
+  // the groups of tiles known to be wired together, joined by size and
+  // never compressed so joins can be undone
+  int[] parents;
+  // for each representative: how many tiles are in its group, how many wires
+  // in or out of it aren't known yet, and those wires' ids xor-ed together,
+  // which is the id of the only one once there is only one
+  int[] sizes;
+  int[] open;
+  int[] exits;
+  // the next tile in the same group, each group is a ring
+  int[] members;
+  // whether the solution has to be a tree, which it does when there are
+  // exactly enough wires to connect every tile once, so no loops are allowed
+  boolean tree;
+  // room for the groups one rotation of a tile would join
+  int[] joinedGroups;
+  // tiles whose rotations need narrowing down again
+  int[] queue;
+  int head;
+  int tail;
+  boolean[] queued;
+  // the changes made so far, three ints each: what to undo, a tile, a value
+  int[] trail;
+  int trailSize;
+  // whether the rules have been broken, so there is no solution from here
+  boolean failed;
+  // for splitting tiles into parts: the cluster of each tile and the node of
+  // each group's representative, -1 when not being split
+  int[] clusterOf;
+  int[] groupOf;
+  // the search each tile is guessed at by, numbered as searches start
+  int[] owners;
+  int searches;
+  // how many searches are running inside each other, how many guesses have
+  // broken the rules since they started over, how many times they have and
+  // how many guesses may break them before they start over again, whether
+  // they are, and whether the first search has no solution yet, so it still can
+  int depth;
+  long fails;
+  long restarts;
+  long budget;
+  boolean restarting;
+  boolean restartable;
+
+  SolverState(BoardStore store) {
+    int size = store.size();
+    this.store = store;
+    this.domains = new byte[size];
+    this.known = new byte[size];
+    this.wires = new byte[size];
+    this.parents = new int[size];
+    this.sizes = new int[size];
+    this.open = new int[size];
+    this.exits = new int[size];
+    this.members = new int[size];
+    // one slot more than there are tiles, so a queue holding every tile
+    // isn't mistaken for an empty one
+    this.queue = new int[size + 1];
+    this.queued = new boolean[size];
+    this.trail = new int[48];
+    this.joinedGroups = new int[5];
+    this.clusterOf = new int[size];
+    this.groupOf = new int[size];
+    this.owners = new int[size];
+    Arrays.fill(this.clusterOf, -1);
+    Arrays.fill(this.groupOf, -1);
+    long ends = 0;
+    for (int i = 0; i < size; i++) {
+      int base = store.wires(i);
+      ends += Integer.bitCount(base);
+      // rotations that give the same wires are the same, keeping the fewest
+      int seen = 0;
+      for (int r = 0; r < 4; r++) {
+        int turned = BoardStore.ROTATIONS[r][base];
+        if ((seen & (1 << turned)) == 0) {
+          seen |= 1 << turned;
+          this.domains[i] |= 1 << r;
+        }
+      }
+      // no wires go off the edge of the board
+      for (int wire : PowerEngine.DIRECTIONS) {
+        if (store.inBounds(i, wire)) {
+          this.open[i] += 1;
+          this.exits[i] ^= this.edge(i, wire);
+        }
+        else {
+          this.known[i] |= wire;
+        }
+      }
+      this.parents[i] = i;
+      this.sizes[i] = 1;
+      this.members[i] = i;
+      this.offer(i);
+    }
+    // every wire has to meet another, and the tiles have to be connected
+    this.failed = ends % 2 != 0 || ends / 2 < size - 1;
+    this.tree = ends / 2 == size - 1;
+  }
+
+  // a copy of the given state to guess on separately, with nothing to undo
+  SolverState(SolverState other) {
+    this.store = other.store;
+    this.domains = other.domains.clone();
+    this.known = other.known.clone();
+    this.wires = other.wires.clone();
+    this.parents = other.parents.clone();
+    this.sizes = other.sizes.clone();
+    this.open = other.open.clone();
+    this.exits = other.exits.clone();
+    this.members = other.members.clone();
+    this.tree = other.tree;
+    this.queue = new int[this.domains.length + 1];
+    this.queued = new boolean[this.domains.length];
+    this.trail = new int[48];
+    this.joinedGroups = new int[5];
+    this.failed = other.failed;
+    this.clusterOf = new int[this.domains.length];
+    this.groupOf = new int[this.domains.length];
+    this.owners = new int[this.domains.length];
+    Arrays.fill(this.clusterOf, -1);
+    Arrays.fill(this.groupOf, -1);
+  }
+
+  // the id of the wire on the given side of the given tile,
+  // shared with the facing wire on the next tile
+  int edge(int tile, int wire) {
+    if (wire == BoardStore.TOP) {
+      return (tile - this.store.width) * 2 + 1;
+    }
+    else if (wire == BoardStore.BOTTOM) {
+      return tile * 2 + 1;
+    }
+    else if (wire == BoardStore.LEFT) {
+      return (tile - 1) * 2;
+    }
+    else {
+      return tile * 2;
+    }
+  }
+
+  // to find the representative of the given tile's group
+  int root(int tile) {
+    while (this.parents[tile] != tile) {
+      tile = this.parents[tile];
+    }
+    return tile;
+  }
+
+  // to write down a change so it can be undone
+  void record(int kind, int tile, int value) {
+    if (this.trailSize + 3 > this.trail.length) {
+      this.trail = Arrays.copyOf(this.trail, this.trail.length * 2);
+    }
+    this.trail[this.trailSize] = kind;
+    this.trail[this.trailSize + 1] = tile;
+    this.trail[this.trailSize + 2] = value;
+    this.trailSize += 3;
+  }
+
+  // to queue the given tile up to be narrowed down, unless it already is
+  void offer(int tile) {
+    if (!this.queued[tile]) {
+      this.queued[tile] = true;
+      this.queue[this.tail] = tile;
+      this.tail = this.tail + 1 == this.queue.length ? 0 : this.tail + 1;
+    }
+  }
+
+  // to guess that the given tile needs the given number of rotations
+  void guess(int tile, int rotation) {
+    this.setDomain(tile, 1 << rotation);
+    this.offer(tile);
+  }
+
+  // to change the rotations the given tile could still have
+  void setDomain(int tile, int domain) {
+    if (this.domains[tile] != domain) {
+      this.record(DOMAIN, tile, this.domains[tile]);
+      this.domains[tile] = (byte) domain;
+    }
+  }
+
+  // to narrow every queued tile down as far as the rules allow,
+  // returns false if they turn out to be broken
+  boolean propagate() {
+    while (!this.failed && this.head != this.tail) {
+      int tile = this.queue[this.head];
+      this.head = this.head + 1 == this.queue.length ? 0 : this.head + 1;
+      this.queued[tile] = false;
+      this.narrow(tile);
+    }
+    // leaving nothing queued for after a failure is undone
+    while (this.head != this.tail) {
+      this.queued[this.queue[this.head]] = false;
+      this.head = this.head + 1 == this.queue.length ? 0 : this.head + 1;
+    }
+    return !this.failed;
+  }
+
+  // to settle the wires of the given tile that its group decides, drop the
+  // rotations that break a known wire, then settle the wires all of its
+  // remaining rotations agree on
+  void narrow(int tile) {
+    int size = this.domains.length;
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((this.known[tile] & wire) == 0 && !this.failed) {
+        int rep = this.root(tile);
+        int nextRep = this.root(this.store.neighbor(tile, wire));
+        if (rep == nextRep) {
+          // joining a group to itself would make a loop
+          if (this.tree) {
+            this.settle(tile, wire, false);
+          }
+        }
+        else if ((this.open[rep] == 1 && this.sizes[rep] < size)
+            || (this.open[nextRep] == 1 && this.sizes[nextRep] < size)) {
+          // the only way out of a group has to be used
+          this.settle(tile, wire, true);
+        }
+      }
+    }
+    if (this.failed) {
+      return;
+    }
+    int base = this.store.wires(tile);
+    int domain = this.domains[tile];
+    int known = this.known[tile];
+    int wires = this.wires[tile];
+    int left = 0;
+    int must = BoardStore.WIRES;
+    int may = 0;
+    for (int r = 0; r < 4; r++) {
+      int turned = BoardStore.ROTATIONS[r][base];
+      if ((domain & (1 << r)) != 0 && (turned & known) == wires
+          && this.allows(tile, turned)) {
+        left |= 1 << r;
+        must &= turned;
+        may |= turned;
+      }
+    }
+    if (left == 0) {
+      this.failed = true;
+      return;
+    }
+    this.setDomain(tile, left);
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((known & wire) == 0 && !this.failed) {
+        if ((must & wire) != 0) {
+          this.settle(tile, wire, true);
+        }
+        else if ((may & wire) == 0) {
+          this.settle(tile, wire, false);
+        }
+      }
+    }
+  }
+
+  // can the given tile have the given wires without making a loop, or leaving
+  // its own group or a group next to it with no way to reach the other tiles?
+  boolean allows(int tile, int turned) {
+    int size = this.domains.length;
+    int unknown = ~this.known[tile] & BoardStore.WIRES;
+    int rep = this.root(tile);
+    // the groups the new wires join together, the tile's own group first
+    int joined = 0;
+    int[] groups = this.joinedGroups;
+    groups[joined] = rep;
+    joined += 1;
+    int joinedSize = this.sizes[rep];
+    int joinedOpen = this.open[rep];
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((unknown & turned & wire) != 0) {
+        int group = this.root(this.store.neighbor(tile, wire));
+        if (SolverState.indexOf(groups, joined, group) >= 0) {
+          if (this.tree) {
+            return false;
+          }
+        }
+        else {
+          groups[joined] = group;
+          joined += 1;
+          joinedSize += this.sizes[group];
+          joinedOpen += this.open[group];
+        }
+      }
+    }
+    // every wire being settled stops being a way out, on both of its ends
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((unknown & wire) != 0) {
+        int group = this.root(this.store.neighbor(tile, wire));
+        joinedOpen -= 1;
+        if (SolverState.indexOf(groups, joined, group) >= 0) {
+          joinedOpen -= 1;
+        }
+        else if (this.sizes[group] < size
+            && this.open[group] == this.closing(tile, unknown & ~turned, group)) {
+          return false;
+        }
+      }
+    }
+    return joinedOpen > 0 || joinedSize == size;
+  }
+
+  // how many of the given wires of the given tile lead into the given group
+  int closing(int tile, int wires, int group) {
+    int count = 0;
+    for (int wire : PowerEngine.DIRECTIONS) {
+      if ((wires & wire) != 0 && this.root(this.store.neighbor(tile, wire)) == group) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  // where the given group is in the first count of the given groups, -1 if it isn't
+  static int indexOf(int[] groups, int count, int group) {
+    for (int k = 0; k < count; k++) {
+      if (groups[k] == group) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  // to settle whether the wire on the given side of the given tile, and the
+  // one facing it on the next tile, are there, then queue both tiles up
+  void settle(int tile, int wire, boolean there) {
+    int next = this.store.neighbor(tile, wire);
+    int facing = BoardStore.opposite(wire);
+    int edge = this.edge(tile, wire);
+    this.record(SETTLE, tile, wire);
+    this.known[tile] |= wire;
+    this.known[next] |= facing;
+    if (there) {
+      this.wires[tile] |= wire;
+      this.wires[next] |= facing;
+    }
+    int rep = this.root(tile);
+    int nextRep = this.root(next);
+    this.open[rep] -= 1;
+    this.exits[rep] ^= edge;
+    this.open[nextRep] -= 1;
+    this.exits[nextRep] ^= edge;
+    if (there && rep != nextRep) {
+      this.checkGroup(this.union(rep, nextRep));
+    }
+    else if (there) {
+      // a loop, which leaves too few wires to reach every tile
+      this.failed = this.failed || this.tree;
+    }
+    else {
+      this.checkGroup(rep);
+      this.checkGroup(nextRep);
+    }
+    this.offer(tile);
+    this.offer(next);
+  }
+
+  // to join the groups with the given representatives, smaller under bigger,
+  // queueing up the tiles of the smaller group that might now close a loop,
+  // returns the new representative
+  int union(int rep, int otherRep) {
+    int child = rep;
+    int root = otherRep;
+    if (this.sizes[rep] > this.sizes[otherRep]) {
+      child = otherRep;
+      root = rep;
+    }
+    if (this.tree) {
+      int member = child;
+      do {
+        if ((this.known[member] & BoardStore.WIRES) != BoardStore.WIRES) {
+          this.offer(member);
+        }
+        member = this.members[member];
+      } while (member != child);
+    }
+    this.record(UNION, child, 0);
+    this.parents[child] = root;
+    this.sizes[root] += this.sizes[child];
+    this.open[root] += this.open[child];
+    this.exits[root] ^= this.exits[child];
+    this.swapMembers(child, root);
+    return root;
+  }
+
+  // to join the rings of the given tiles' groups, or split them again
+  void swapMembers(int tile, int other) {
+    int next = this.members[tile];
+    this.members[tile] = this.members[other];
+    this.members[other] = next;
+  }
+
+  // to fail if the group with the given representative can't reach the other
+  // tiles, and queue up the tile with the only way out when there is one
+  void checkGroup(int rep) {
+    if (this.sizes[rep] < this.domains.length) {
+      if (this.open[rep] == 0) {
+        this.failed = true;
+      }
+      else if (this.open[rep] == 1) {
+        this.offer(this.exits[rep] / 2);
+      }
+    }
+  }
+
+  // to undo every change made since the trail was the given size
+  void undo(int mark) {
+    while (this.trailSize > mark) {
+      this.trailSize -= 3;
+      int kind = this.trail[this.trailSize];
+      int tile = this.trail[this.trailSize + 1];
+      int value = this.trail[this.trailSize + 2];
+      if (kind == DOMAIN) {
+        this.domains[tile] = (byte) value;
+      }
+      else if (kind == SETTLE) {
+        int next = this.store.neighbor(tile, value);
+        int facing = BoardStore.opposite(value);
+        int edge = this.edge(tile, value);
+        this.known[tile] &= ~value;
+        this.wires[tile] &= ~value;
+        this.known[next] &= ~facing;
+        this.wires[next] &= ~facing;
+        int rep = this.root(tile);
+        int nextRep = this.root(next);
+        this.open[rep] += 1;
+        this.exits[rep] ^= edge;
+        this.open[nextRep] += 1;
+        this.exits[nextRep] ^= edge;
+      }
+      else {
+        int root = this.parents[tile];
+        this.swapMembers(tile, root);
+        this.sizes[root] -= this.sizes[tile];
+        this.open[root] -= this.open[tile];
+        this.exits[root] ^= this.exits[tile];
+        this.parents[tile] = tile;
+      }
+    }
+    this.failed = false;
+  }
+
+  // to find the first tile from the given one on that could still be
+  // turned more than one way, -1 if every tile is down to one
+  int nextUndecided(int from) {
+    for (int i = from; i < this.domains.length; i++) {
+      if (this.undecided(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // is the given tile still able to be turned more than one way?
+  boolean undecided(int tile) {
+    return (this.domains[tile] & (this.domains[tile] - 1)) != 0;
+  }
+
+  // to find where in the given tiles, from the given place on, the first one
+  // is that could still be turned more than one way, -1 if every one is down to one
+  int nextUndecided(int[] tiles, int from) {
+    for (int k = from; k < tiles.length; k++) {
+      if (this.undecided(tiles[k])) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  // are the given tiles all wired together?
+  boolean connected(int[] tiles) {
+    int rep = this.root(tiles[0]);
+    for (int tile : tiles) {
+      if (this.root(tile) != rep) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // to pick the tile of the given search to guess next: one next to the
+  // latest changes, so a bad guess breaks the rules soon after it is made,
+  // otherwise the given tile
+  int pickTile(int first, int search) {
+    int stop = Math.max(0, this.trailSize - 3 * RECENT);
+    for (int k = this.trailSize - 3; k >= stop; k -= 3) {
+      if (this.trail[k] == SETTLE) {
+        int tile = this.trail[k + 1];
+        int next = this.store.neighbor(tile, this.trail[k + 2]);
+        if (this.owners[tile] == search && this.undecided(tile)) {
+          return tile;
+        }
+        if (this.owners[next] == search && this.undecided(next)) {
+          return next;
+        }
+      }
+    }
+    return first;
+  }
+
+  // to split the undecided tiles of the given ones, from the given place on,
+  // into parts that can be searched apart, biggest first and each in the order
+  // of the given tiles, or null if they can't all be connected.
+  // Undecided tiles joined by wires that aren't known yet make a cluster, and
+  // a cluster touches the groups its tiles are in. Guesses only reach another
+  // cluster through a group, and a loop or a split can only run through two
+  // clusters if they are in a cycle of clusters and groups, so the parts are
+  // the clusters of each biconnected component of that graph
+  ArrayList<int[]> split(int[] tiles, int from) {
+    // the clusters, each found by a breadth-first search from its first tile
+    int[] order = new int[tiles.length - from];
+    int ordered = 0;
+    int clusters = 0;
+    for (int k = from; k < tiles.length; k++) {
+      if (this.clusterOf[tiles[k]] < 0 && this.undecided(tiles[k])) {
+        this.clusterOf[tiles[k]] = clusters;
+        order[ordered] = tiles[k];
+        ordered += 1;
+        for (int head = ordered - 1; head < ordered; head++) {
+          int tile = order[head];
+          for (int wire : PowerEngine.DIRECTIONS) {
+            int next = (this.known[tile] & wire) == 0 ? this.store.neighbor(tile, wire) : -1;
+            if (next >= 0 && this.clusterOf[next] < 0) {
+              this.clusterOf[next] = clusters;
+              order[ordered] = next;
+              ordered += 1;
+            }
+          }
+        }
+        clusters += 1;
+      }
+    }
+    // the graph of clusters and the groups they touch, the clusters numbered
+    // first, with one edge for each undecided tile, and the neighbors of each
+    // node packed together from where starts says
+    int nodes = clusters;
+    for (int k = 0; k < ordered; k++) {
+      int rep = this.root(order[k]);
+      if (this.groupOf[rep] < 0) {
+        this.groupOf[rep] = nodes;
+        nodes += 1;
+      }
+    }
+    int[] starts = new int[nodes + 1];
+    for (int k = 0; k < ordered; k++) {
+      starts[this.clusterOf[order[k]] + 1] += 1;
+      starts[this.groupOf[this.root(order[k])] + 1] += 1;
+    }
+    for (int v = 0; v < nodes; v++) {
+      starts[v + 1] += starts[v];
+    }
+    int[] at = Arrays.copyOf(starts, nodes);
+    int[] neighbors = new int[ordered * 2];
+    for (int k = 0; k < ordered; k++) {
+      int cluster = this.clusterOf[order[k]];
+      int group = this.groupOf[this.root(order[k])];
+      neighbors[at[cluster]] = group;
+      at[cluster] += 1;
+      neighbors[at[group]] = cluster;
+      at[group] += 1;
+    }
+    // Tarjan's biconnected components, on arrays instead of the call stack,
+    // uniting the clusters of each component as it is popped off
+    UnionFind together = new UnionFind(clusters);
+    System.arraycopy(starts, 0, at, 0, nodes);
+    int[] found = new int[nodes];
+    int[] low = new int[nodes];
+    int[] calls = new int[nodes];
+    int[] stack = new int[nodes];
+    int time = 0;
+    int pieces = 0;
+    for (int root = 0; root < clusters; root++) {
+      if (found[root] == 0) {
+        pieces += 1;
+        time += 1;
+        found[root] = time;
+        low[root] = time;
+        calls[0] = root;
+        stack[0] = root;
+        int callTop = 1;
+        int stackTop = 1;
+        while (callTop > 0) {
+          int node = calls[callTop - 1];
+          if (at[node] < starts[node + 1]) {
+            int next = neighbors[at[node]];
+            at[node] += 1;
+            if (found[next] == 0) {
+              time += 1;
+              found[next] = time;
+              low[next] = time;
+              calls[callTop] = next;
+              stack[stackTop] = next;
+              callTop += 1;
+              stackTop += 1;
+            }
+            else {
+              low[node] = Math.min(low[node], found[next]);
+            }
+          }
+          else {
+            callTop -= 1;
+            int parent = callTop > 0 ? calls[callTop - 1] : -1;
+            if (parent >= 0) {
+              low[parent] = Math.min(low[parent], low[node]);
+            }
+            if (parent >= 0 && low[node] >= found[parent]) {
+              // the parent and everything stacked from this node up
+              int cluster = parent < clusters ? parent : -1;
+              int popped = -1;
+              while (popped != node) {
+                stackTop -= 1;
+                popped = stack[stackTop];
+                if (popped < clusters && cluster < 0) {
+                  cluster = popped;
+                }
+                else if (popped < clusters) {
+                  together.union(cluster, popped);
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    // a part for each set of united clusters, biggest first
+    int[] partSizes = new int[clusters];
+    for (int k = 0; k < ordered; k++) {
+      partSizes[together.find(this.clusterOf[order[k]])] += 1;
+    }
+    ArrayList<Integer> reps = new ArrayList<Integer>();
+    for (int cluster = 0; cluster < clusters; cluster++) {
+      if (partSizes[cluster] > 0) {
+        reps.add(cluster);
+      }
+    }
+    reps.sort((a, b) -> Integer.compare(partSizes[b], partSizes[a]));
+    int[] partOf = new int[clusters];
+    ArrayList<int[]> parts = new ArrayList<int[]>();
+    for (int rep : reps) {
+      partOf[rep] = parts.size();
+      parts.add(new int[partSizes[rep]]);
+    }
+    int[] filled = new int[parts.size()];
+    for (int k = from; k < tiles.length; k++) {
+      if (this.clusterOf[tiles[k]] >= 0) {
+        int part = partOf[together.find(this.clusterOf[tiles[k]])];
+        parts.get(part)[filled[part]] = tiles[k];
+        filled[part] += 1;
+      }
+    }
+    // leaving nothing marked for the next split
+    for (int k = 0; k < ordered; k++) {
+      this.clusterOf[order[k]] = -1;
+      this.groupOf[this.root(order[k])] = -1;
+    }
+    // groups in separate pieces of the graph can never be wired together
+    return pieces > 1 ? null : parts;
+  }
+
+  // to try every guess at the given tiles one after another, in a random
+  // order from the given seed, undoing each before the next, and keep the
+  // rotations of the tiles in the first solution found in the given array.
+  // Whenever a share of the tiles has been guessed at, what is left is split
+  // again, so a bad guess in one part is never undone by going back through
+  // guesses in another. Returns how many solutions were found
+  int search(BoardSolver solver, SolverPart part, int[] tiles, long seed, int[] rotations) {
+    if (!this.propagate()) {
+      return 0;
+    }
+    this.searches += 1;
+    int search = this.searches;
+    for (int tile : tiles) {
+      this.owners[tile] = search;
+    }
+    // the first search of a part keeps the budget for all the searches of its
+    // parts, and is the one that starts over
+    boolean first = this.depth == 0;
+    this.depth += 1;
+    if (first) {
+      this.fails = 0;
+      this.restarts = 1;
+      this.budget = RESTART_FAILS;
+      this.restarting = false;
+    }
+    // for each guess still open: the tile, the rotations left to try, the
+    // trail before the guess and where the first undecided tile was
+    int[] picked = new int[16];
+    int[] untried = new int[16];
+    int[] marks = new int[16];
+    int[] firsts = new int[16];
+    // the tiles that ran out of rotations most recently, guessed first so the
+    // guess that really broke them is found without trying every guess between
+    int[] conflicts = new int[CONFLICTS];
+    int conflictCount = 0;
+    int top = -1;
+    int count = 0;
+    int next = 0;
+    int guesses = 0;
+    int start = this.trailSize;
+    Random rand = new Random(seed);
+    while (true) {
+      if (first) {
+        this.restartable = count == 0;
+      }
+      next = this.nextUndecided(tiles, next);
+      int apart = -1;
+      if (next >= 0 && guesses > tiles.length / SPLIT_SHARE) {
+        guesses = 0;
+        apart = this.searchApart(solver, part, tiles, next, rand.nextLong(),
+            count == 0 ? rotations : null, search);
+      }
+      if (next < 0) {
+        // every tile is turned, but the groups they touch only reach each
+        // other through them
+        if (this.connected(tiles)) {
+          for (int k = 0; k < rotations.length && count == 0; k++) {
+            rotations[k] = Integer.numberOfTrailingZeros(this.domains[tiles[k]]);
+          }
+          count += 1;
+        }
+      }
+      else if (apart >= 0) {
+        count += apart;
+      }
+      else {
+        top += 1;
+        guesses += 1;
+        if (top == picked.length) {
+          picked = Arrays.copyOf(picked, top * 2);
+          untried = Arrays.copyOf(untried, top * 2);
+          marks = Arrays.copyOf(marks, top * 2);
+          firsts = Arrays.copyOf(firsts, top * 2);
+        }
+        int tile = this.pickTile(tiles[next], search);
+        for (int k = 0; k < conflictCount; k++) {
+          if (this.undecided(conflicts[k])) {
+            tile = conflicts[k];
+          }
+        }
+        picked[top] = tile;
+        untried[top] = this.domains[tile];
+        marks[top] = this.trailSize;
+        firsts[top] = next;
+      }
+      // trying the next guess that doesn't break the rules, where a part with
+      // no solution breaks them as much as a guess that can't be narrowed down
+      boolean broken = apart == 0;
+      boolean guessed = false;
+      while (!guessed && top >= 0 && !solver.done(part, count) && !this.restarting) {
+        // every search of the part stops once too many guesses have broken
+        // the rules, since the bad guess may be in a search further out
+        this.restarting = broken && this.restartable && ++this.fails > this.budget;
+        broken = false;
+        if (!this.restarting) {
+          this.undo(marks[top]);
+          if (untried[top] == 0) {
+            conflictCount = SolverState.remember(conflicts, conflictCount, picked[top]);
+            top -= 1;
+          }
+          else {
+            int rotation = SolverState.anyRotation(untried[top], rand);
+            untried[top] &= ~(1 << rotation);
+            this.guess(picked[top], rotation);
+            guessed = this.propagate();
+            broken = !guessed;
+            next = firsts[top];
+            if (guessed) {
+              conflictCount = SolverState.forget(conflicts, conflictCount, picked[top]);
+            }
+          }
+        }
+      }
+      if (first && this.restarting) {
+        // starting over in a new random order, so one bad early guess can't
+        // stall the search, mostly on small budgets, but with one long enough
+        // for every guess to fit now and then
+        this.undo(start);
+        top = -1;
+        next = 0;
+        this.fails = 0;
+        this.restarts += 1;
+        this.budget = RESTART_FAILS * SolverState.luby(this.restarts);
+        this.restarting = false;
+        guessed = true;
+      }
+      if (!guessed) {
+        this.depth -= 1;
+        return count;
+      }
+    }
+  }
+
+  // to search the undecided ones of the given tiles of the given search,
+  // from the given place on, part by part if they split into more than one,
+  // keeping the rotations of the tiles in the first solution in the given
+  // array unless it is null, returns how many solutions there are up to the
+  // solver's limit, or -1 if the tiles don't split
+  int searchApart(BoardSolver solver, SolverPart part, int[] tiles, int from, long seed,
+      int[] rotations, int search) {
+    ArrayList<int[]> parts = this.split(tiles, from);
+    if (parts == null) {
+      return 0;
+    }
+    if (parts.size() == 1) {
+      return -1;
+    }
+    // the smallest parts first, since a part with no solution makes searching
+    // the rest a waste, and is most likely near the latest guesses
+    int found = 1;
+    int[][] partRotations = new int[parts.size()][];
+    for (int p = parts.size() - 1; p >= 0 && found > 0 && !this.restarting; p--) {
+      partRotations[p] = new int[parts.get(p).length];
+      int mark = this.trailSize;
+      int solutions = this.search(solver, part, parts.get(p), seed, partRotations[p]);
+      found = Math.min(found * solutions, solver.limit);
+      this.undo(mark);
+      for (int tile : parts.get(p)) {
+        this.owners[tile] = search;
+      }
+    }
+    if (this.restarting) {
+      return 0;
+    }
+    if (found > 0 && rotations != null) {
+      for (int k = 0; k < tiles.length; k++) {
+        rotations[k] = Integer.numberOfTrailingZeros(this.domains[tiles[k]]);
+      }
+      for (int p = 0; p < parts.size(); p++) {
+        int[] apart = parts.get(p);
+        for (int j = 0; j < apart.length; j++) {
+          rotations[Arrays.binarySearch(tiles, apart[j])] = partRotations[p][j];
+        }
+      }
+    }
+    return found;
+  }
+
+  // the given term, from 1, of the Luby sequence 1 1 2 1 1 2 4 1 1 2 ..., where
+  // each power of two follows two copies of everything before it
+  static long luby(long term) {
+    while (true) {
+      long size = 1;
+      while (size < term) {
+        size = size * 2 + 1;
+      }
+      if (size == term) {
+        return (size + 1) / 2;
+      }
+      term -= size / 2;
+    }
+  }
+
+  // to pick one of the given rotations at random
+  static int anyRotation(int untried, Random rand) {
+    int skip = rand.nextInt(Integer.bitCount(untried));
+    int rotation = Integer.numberOfTrailingZeros(untried);
+    for (int k = 0; k < skip; k++) {
+      untried &= ~(1 << rotation);
+      rotation = Integer.numberOfTrailingZeros(untried);
+    }
+    return rotation;
+  }
+
+  // to add the given tile to the end of the given conflicts, dropping the oldest
+  // if there is no room, returns how many conflicts there are now
+  static int remember(int[] conflicts, int count, int tile) {
+    count = SolverState.forget(conflicts, count, tile);
+    if (count == conflicts.length) {
+      count = SolverState.forget(conflicts, count, conflicts[0]);
+    }
+    conflicts[count] = tile;
+    return count + 1;
+  }
+
+  // to take the given tile out of the given conflicts,
+  // returns how many conflicts there are now
+  static int forget(int[] conflicts, int count, int tile) {
+    for (int k = 0; k < count; k++) {
+      if (conflicts[k] == tile) {
+        System.arraycopy(conflicts, k + 1, conflicts, k, count - k - 1);
+        return count - 1;
+      }
+    }
+    return count;
+  }
+
+  // to get the rotations of each tile, once every tile is down to one
+  int[] rotations() {
+    int[] rotations = new int[this.domains.length];
+    for (int i = 0; i < rotations.length; i++) {
+      rotations[i] = Integer.numberOfTrailingZeros(this.domains[i]);
+    }
+    return rotations;
+  }
+}
@@ -0,0 +1,53 @@
+package lightemall;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// to represent one thread's share of the search: taking the parts of the
+// board one after another and trying every guess at each on the thread's own
+// copy of the board, undoing all of them before taking the next part. Once
+// every part is taken, the thread searches the biggest unfinished part again
+// in another random order, since a search that makes a bad guess early can
+// take far longer than one that doesn't, and whichever finishes first counts
+class SolverTask extends RecursiveAction {
+  // tasks are never serialized, this only keeps the compiler quiet
+  private static final long serialVersionUID = 1L;
+
+  // the search this is a part of
+  BoardSolver solver;
+  // the board as narrowed down before any guesses, for this thread alone
+  SolverState state;
+  // the next part no thread has taken yet
+  AtomicInteger next;
+
+  SolverTask(BoardSolver solver, SolverState state, AtomicInteger next) {
+    this.solver = solver;
+    this.state = state;
+    this.next = next;
+  }
+
+  // to search parts until every one is finished, or one has no solution
+  protected void compute() {
+    SolverPart part = this.take(this.next.getAndIncrement());
+    while (part != null && !this.solver.failed) {
+      int[] rotations = new int[part.tiles.length];
+      long seed = SolverState.RESTART_SEED + part.searches.getAndIncrement();
+      int mark = this.state.trailSize;
+      int found = this.state.search(this.solver, part, part.tiles, seed, rotations);
+      this.state.undo(mark);
+      // a search only stops short once the part is finished or the board
+      // has failed, and then what it found is never kept
+      this.solver.finish(part, found, rotations);
+      part = this.take(this.next.getAndIncrement());
+    }
+  }
+
+  // the part with the given index if no thread has taken it,
+  // otherwise the biggest unfinished one
+  SolverPart take(int index) {
+    if (index < this.solver.parts.size()) {
+      return this.solver.parts.get(index);
+    }
+    return this.solver.unfinished();
+  }
+}
@@ -0,0 +1,80 @@
+package lightemall;
+
+import java.awt.Color;
+import javalib.worldimages.*;
+
+// to draw the image of every kind of tile at one size and remember them, so that
+// drawing the board shares a handful of images instead of making new ones every frame
+class TileImageCache {
+  // the size of the tiles and the width of their wires, in pixels
+  int size;
+  int wireWidth;
+  // the images, indexed by the wires, power and station bits of a tile
+  WorldImage[] images;
+
+  TileImageCache(int size, int wireWidth) {
+    this.size = size;
+    this.wireWidth = wireWidth;
+    this.images = new WorldImage[BoardStore.WIRES + BoardStore.POWERED + BoardStore.STATION + 1];
+    for (int cell = 0; cell < this.images.length; cell++) {
+      boolean station = (cell & BoardStore.STATION) != 0;
+      // the station and powered tiles have red wires
+      Color color = Color.LIGHT_GRAY;
+      if (station || (cell & BoardStore.POWERED) != 0) {
+        color = Color.red;
+      }
+      this.images[cell] = TileImageCache.tileImage(cell & BoardStore.WIRES, size, wireWidth,
+          color, station);
+    }
+  }
+
+  // to get the image of a tile with the given packed state from a BoardStore
+  WorldImage get(int cell) {
+    return this.images[cell & (this.images.length - 1)];
+  }
+
+  // Generate an image of the given GamePiece.
+  // - size: the size of the tile, in pixels
+  // - wireWidth: the width of wires, in pixels
+  // - wireColor: the Color to use for rendering wires on the tile
+  // - hasPowerStation: if true, draws a fancy star on this tile to represent the
+  // power station
+  static WorldImage tileImage(GamePiece piece, int size, int wireWidth, Color wireColor,
+      boolean hasPowerStation) {
+    return TileImageCache.tileImage(piece.store.wires(piece.index()), size, wireWidth, wireColor,
+        hasPowerStation);
+  }
+
+  // Generate an image of a tile with the given wires, as above
+  static WorldImage tileImage(int wires, int size, int wireWidth, Color wireColor,
+      boolean hasPowerStation) {
+    // Start tile image off as a blue square with a wire-width square in the middle,
+    // to make image "cleaner" (will look strange if tile has no wire, but that
+    // can't be)
+    WorldImage image = new OverlayImage(
+        new RectangleImage(wireWidth, wireWidth, OutlineMode.SOLID, wireColor),
+        new RectangleImage(size, size, OutlineMode.SOLID, Color.DARK_GRAY));
+    WorldImage vWire = new RectangleImage(wireWidth, (size + 1) / 2, OutlineMode.SOLID, wireColor);
+    WorldImage hWire = new RectangleImage((size + 1) / 2, wireWidth, OutlineMode.SOLID, wireColor);
+
+    if ((wires & BoardStore.TOP) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, 0, image);
+    }
+    if ((wires & BoardStore.RIGHT) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE, hWire, 0, 0, image);
+    }
+    if ((wires & BoardStore.BOTTOM) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM, vWire, 0, 0, image);
+    }
+    if ((wires & BoardStore.LEFT) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE, hWire, 0, 0, image);
+    }
+    if (hasPowerStation) {
+      image = new OverlayImage(
+          new OverlayImage(new StarImage(size / 3, 7, OutlineMode.OUTLINE, new Color(255, 128, 0)),
+              new StarImage(size / 3, 7, OutlineMode.SOLID, new Color(0, 255, 255))),
+          image);
+    }
+    return image;
+  }
+}
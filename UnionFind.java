@@ -0,0 +1,82 @@
+package lightemall;
+
+import java.util.*;
+
+// to represent disjoint groups of the tiles on a board,
+// where each tile is indexed by row * width + col
+class UnionFind {
+  // the parent of each tile, a tile that is its own
+  // parent is the representative of its group
+  int[] parents;
+  // an upper bound on the height of each representative's tree
+  int[] ranks;
+
+  UnionFind(int size) {
+    this.parents = new int[size];
+    this.ranks = new int[size];
+    for (int i = 0; i < size; i++) {
+      this.parents[i] = i;
+    }
+  }
+
+  // to put every tile back in a group of its own
+  void reset() {
+    this.reset(this.parents.length);
+  }
+
+  // to put the first given number of tiles back in groups of their own,
+  // for reusing the arrays on fewer tiles
+  void reset(int count) {
+    for (int i = 0; i < count; i++) {
+      this.parents[i] = i;
+    }
+    Arrays.fill(this.ranks, 0, count, 0);
+  }
+
+  // to find the representative of the given tile's group,
+  // pointing every tile on the way straight at it
+  int find(int node) {
+    int root = node;
+    while (this.parents[root] != root) {
+      root = this.parents[root];
+    }
+    // path compression
+    while (this.parents[node] != root) {
+      int next = this.parents[node];
+      this.parents[node] = root;
+      node = next;
+    }
+    return root;
+  }
+
+  // to find the representative of the given tile's group without changing
+  // anything, so it is safe to call from many threads while nothing is unioned
+  int root(int node) {
+    while (this.parents[node] != node) {
+      node = this.parents[node];
+    }
+    return node;
+  }
+
+  // to union the groups of the two given tiles together,
+  // returns false if they were already in the same group
+  boolean union(int from, int to) {
+    int fromRep = this.find(from);
+    int toRep = this.find(to);
+    if (fromRep == toRep) {
+      return false;
+    }
+    // hanging the shorter tree under the taller one
+    if (this.ranks[fromRep] < this.ranks[toRep]) {
+      this.parents[fromRep] = toRep;
+    }
+    else if (this.ranks[fromRep] > this.ranks[toRep]) {
+      this.parents[toRep] = fromRep;
+    }
+    else {
+      this.parents[fromRep] = toRep;
+      this.ranks[toRep] += 1;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,112 @@
+package lightemall;
+
+// to represent the part of a board shown in the window, and how big its tiles
+// are drawn, so only the tiles that can be seen are ever drawn or clicked on
+class Viewport {
+  // the tile sizes, in pixels, from zoomed out all the way to zoomed in
+  static final int[] TILE_SIZES = {10, 14, 20, 30, 40, 50, 70, 100, 140};
+  // the zoom the game starts at, 70 pixels a tile
+  static final int START_ZOOM = 6;
+  // the most tiles across and down the window shows at the starting zoom
+  static final int MAX_COLS = 14;
+  static final int MAX_ROWS = 10;
+
+  // the width and height of the board, in tiles
+  int boardWidth;
+  int boardHeight;
+  // the width and height of the window the board is shown in, in pixels
+  int pixelWidth;
+  int pixelHeight;
+  // which of the TILE_SIZES is used, and that size
+  int zoom;
+  int tileSize;
+  // the first row and column shown, and how many are shown
+  int row0;
+  int col0;
+  int rows;
+  int cols;
+  // the images of every kind of tile at each zoom, made when first needed
+  TileImageCache[] tileImages;
+
+  Viewport(int boardWidth, int boardHeight) {
+    this.boardWidth = boardWidth;
+    this.boardHeight = boardHeight;
+    this.pixelWidth = Math.min(boardWidth, MAX_COLS) * TILE_SIZES[START_ZOOM];
+    this.pixelHeight = Math.min(boardHeight, MAX_ROWS) * TILE_SIZES[START_ZOOM];
+    this.tileImages = new TileImageCache[TILE_SIZES.length];
+    this.row0 = 0;
+    this.col0 = 0;
+    this.setZoom(START_ZOOM);
+  }
+
+  // to change the zoom, keeping the tile in the middle of the window there
+  void setZoom(int zoom) {
+    int midRow = this.row0 + this.rows / 2;
+    int midCol = this.col0 + this.cols / 2;
+    this.zoom = zoom;
+    this.tileSize = TILE_SIZES[zoom];
+    this.rows = Math.max(1, Math.min(this.boardHeight, this.pixelHeight / this.tileSize));
+    this.cols = Math.max(1, Math.min(this.boardWidth, this.pixelWidth / this.tileSize));
+    this.moveTo(midRow - this.rows / 2, midCol - this.cols / 2);
+  }
+
+  // to show the tiles starting at the given row and column,
+  // as close to it as the edges of the board allow
+  void moveTo(int row, int col) {
+    this.row0 = Math.max(0, Math.min(row, this.boardHeight - this.rows));
+    this.col0 = Math.max(0, Math.min(col, this.boardWidth - this.cols));
+  }
+
+  // to move the window or zoom for the given key,
+  // returns whether anything shown changed
+  boolean onKey(String key) {
+    int row = this.row0;
+    int col = this.col0;
+    int zoom = this.zoom;
+    // moving a quarter of the window at a time
+    int rowStep = Math.max(1, this.rows / 4);
+    int colStep = Math.max(1, this.cols / 4);
+    if (key.equals("w")) {
+      this.moveTo(row - rowStep, col);
+    }
+    else if (key.equals("s")) {
+      this.moveTo(row + rowStep, col);
+    }
+    else if (key.equals("a")) {
+      this.moveTo(row, col - colStep);
+    }
+    else if (key.equals("d")) {
+      this.moveTo(row, col + colStep);
+    }
+    else if (key.equals("=") && zoom < TILE_SIZES.length - 1) {
+      this.setZoom(zoom + 1);
+    }
+    else if (key.equals("-") && zoom > 0) {
+      this.setZoom(zoom - 1);
+    }
+    return row != this.row0 || col != this.col0 || zoom != this.zoom;
+  }
+
+  // to find the index of the tile at the given pixel in the window,
+  // -1 if there is no tile shown there
+  int tileAt(int x, int y) {
+    if (x < 0 || y < 0) {
+      return -1;
+    }
+    int col = x / this.tileSize;
+    int row = y / this.tileSize;
+    if (col >= this.cols || row >= this.rows) {
+      return -1;
+    }
+    return (this.row0 + row) * this.boardWidth + this.col0 + col;
+  }
+
+  // to get the images of every kind of tile at the current tile size
+  TileImageCache tileImages() {
+    if (this.tileImages[this.zoom] == null) {
+      this.tileImages[this.zoom] = new TileImageCache(this.tileSize,
+          Math.max(1, this.tileSize / 14));
+    }
+    return this.tileImages[this.zoom];
+  }
+}
@@ -0,0 +1,39 @@
+package lightemall;
+
+import java.util.*;
+
+// to wire up a board with Wilson's algorithm: from every tile outside the tree,
+// take a random walk until it reaches the tree and add the walk with its loops
+// taken out, which gives every spanning tree the same chance with no bias
+class WilsonGenerator extends AGenerator {
+
+  // to make a new WilsonGenerator
+  public BoardGenerator fresh() {
+    return new WilsonGenerator();
+  }
+
+  // to wire up the tiles of the given board with loop-erased random walks
+  public void generate(BoardStore store, Random rand, String bias) {
+    int against = AGenerator.against(bias);
+    boolean[] inTree = new boolean[store.size()];
+    // the wire each tile was last left by on the current walk,
+    // overwriting it takes out the loop back to that tile
+    int[] exits = new int[store.size()];
+    inTree[rand.nextInt(store.size())] = true;
+
+    for (int start = 0; start < store.size(); start++) {
+      int tile = start;
+      while (!inTree[tile]) {
+        exits[tile] = AGenerator.pickWire(rand, AGenerator.onBoard(store, tile), against);
+        tile = store.neighbor(tile, exits[tile]);
+      }
+      // adding the walk that is left to the tree
+      tile = start;
+      while (!inTree[tile]) {
+        inTree[tile] = true;
+        AGenerator.join(store, tile, exits[tile]);
+        tile = store.neighbor(tile, exits[tile]);
+      }
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package lightemall;
+
+import java.util.*;
+import lightemall.bench.Workload;
+
+// to time KruskalGenerator.assignEdges, making and sorting every edge, in
+// arrays made once; the edges of the last run are dropped first
+public class AssignEdgesWorkload implements Workload {
+  KruskalGenerator generator;
+  Random rand;
+  String bias;
+
+  public void setUp(int size, String bias, long seed) {
+    this.generator = new KruskalGenerator();
+    this.generator.makeArrays(new BoardStore(size, size), bias);
+    this.rand = new Random(seed);
+    this.bias = bias;
+  }
+
+  public Object run() {
+    this.generator.edgeCount = 0;
+    this.generator.assignEdges(this.rand, this.bias);
+    return this.generator.sorted;
+  }
+}
@@ -0,0 +1,25 @@
+package lightemall;
+
+import lightemall.bench.Workload;
+
+// to time wiring up a board with BoruvkaGenerator, the way new games are,
+// emptying the board first
+public class GenerateWorkload implements Workload {
+  BoruvkaGenerator generator;
+  BoardStore store;
+  String bias;
+  long seed;
+
+  public void setUp(int size, String bias, long seed) {
+    this.generator = new BoruvkaGenerator();
+    this.store = new BoardStore(size, size);
+    this.bias = bias;
+    this.seed = seed;
+  }
+
+  public Object run() {
+    this.store.clear();
+    this.generator.generate(this.store, this.seed, this.bias);
+    return this.store;
+  }
+}
@@ -0,0 +1,22 @@
+package lightemall;
+
+import java.util.*;
+import lightemall.bench.Workload;
+
+// to time KruskalGenerator.kruskal on edges sorted once, putting every tile
+// back in a group of its own first
+public class KruskalWorkload implements Workload {
+  KruskalGenerator generator;
+
+  public void setUp(int size, String bias, long seed) {
+    this.generator = new KruskalGenerator();
+    this.generator.makeArrays(new BoardStore(size, size), bias);
+    this.generator.assignEdges(new Random(seed), bias);
+    this.generator.representatives = this.generator.setReps();
+  }
+
+  public Object run() {
+    this.generator.representatives.reset();
+    return this.generator.kruskal();
+  }
+}
@@ -0,0 +1,22 @@
+package lightemall;
+
+import java.util.*;
+import lightemall.bench.Workload;
+
+// to time powering the whole board from the station, on a board turned back
+// to how it was wired up, so every tile is powered
+public class LightEmUpWorkload implements Workload {
+  LightEngine engine;
+
+  public void setUp(int size, String bias, long seed) {
+    this.engine = new LightEngine(size, size, bias, new Random(seed), new BoruvkaGenerator());
+    for (int i = 0; i < this.engine.solved.length; i++) {
+      this.engine.store.setWires(i, this.engine.solved[i]);
+    }
+  }
+
+  public Object run() {
+    this.engine.lightEmUp();
+    return this.engine.power;
+  }
+}
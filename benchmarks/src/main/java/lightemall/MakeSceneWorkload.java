@@ -0,0 +1,23 @@
+package lightemall;
+
+import java.util.*;
+import lightemall.bench.Workload;
+
+// to time drawing a frame after a click on the tile in the middle of the view
+public class MakeSceneWorkload implements Workload {
+  LightEmAll game;
+  // the tile turned before every frame
+  int tile;
+
+  public void setUp(int size, String bias, long seed) {
+    this.game = new LightEmAll(size, size, bias, new Random(seed), new BoruvkaGenerator());
+    Viewport view = this.game.viewport;
+    this.tile = this.game.engine.store.index(view.row0 + view.rows / 2,
+        view.col0 + view.cols / 2);
+  }
+
+  public Object run() {
+    this.game.engine.power.rotate(this.tile);
+    return this.game.makeScene();
+  }
+}
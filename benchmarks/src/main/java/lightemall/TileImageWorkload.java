@@ -0,0 +1,21 @@
+package lightemall;
+
+import java.awt.Color;
+import lightemall.bench.Workload;
+
+// to time drawing the image of a tile from scratch, every kind of tile in turn
+public class TileImageWorkload implements Workload {
+  // the next tile drawn: its wires in the low four bits, and whether the
+  // station is on it in the fifth, so counting through 32 draws every kind
+  int cell;
+
+  public void setUp(int size, String bias, long seed) {
+    this.cell = 0;
+  }
+
+  public Object run() {
+    this.cell = (this.cell + 1) & 31;
+    return TileImageCache.tileImage(this.cell & BoardStore.WIRES, 70, 5, Color.LIGHT_GRAY,
+        (this.cell & 16) != 0);
+  }
+}
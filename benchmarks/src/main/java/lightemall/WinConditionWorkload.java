@@ -0,0 +1,18 @@
+package lightemall;
+
+import java.util.*;
+import lightemall.bench.Workload;
+
+// to time checking for a win
+public class WinConditionWorkload implements Workload {
+  LightEngine engine;
+
+  public void setUp(int size, String bias, long seed) {
+    this.engine = new LightEngine(size, size, bias, new Random(seed), new BoruvkaGenerator());
+  }
+
+  public Object run() {
+    this.engine.winCondition();
+    return this.engine;
+  }
+}
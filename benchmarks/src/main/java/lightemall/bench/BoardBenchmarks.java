@@ -0,0 +1,101 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+import lightemall.AssignEdgesWorkload;
+import lightemall.GenerateWorkload;
+import lightemall.KruskalWorkload;
+import lightemall.LightEmUpWorkload;
+import lightemall.MakeSceneWorkload;
+import lightemall.WinConditionWorkload;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+// to time the parts of the game that get slow on big boards, on square boards
+// of every size and bias, each made from the same seed so runs can be compared.
+// Throughput and SampleTime give operations per microsecond and the latency
+// percentiles; the GC profiler the build runs with gives the allocation rate.
+// Each benchmark runs the Workload named after it, so assignEdges runs
+// AssignEdgesWorkload, and only that one is set up
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx8g")
+public class BoardBenchmarks {
+  // every board and every random edge weight comes from this seed
+  public static final long SEED = 2024;
+
+  // the width and height of the board
+  @Param({"7", "64", "512", "4096"})
+  public int size;
+  @Param({"normal", "horizontal", "vertical"})
+  public String bias;
+
+  // what the running benchmark times
+  Workload workload;
+
+  // to make and set up the workload of the benchmark being run
+  @Setup(Level.Trial)
+  public void setUp(BenchmarkParams params) {
+    String name = params.getBenchmark().substring(params.getBenchmark().lastIndexOf('.') + 1);
+    this.workload = BoardBenchmarks.workload(name);
+    this.workload.setUp(this.size, this.bias, SEED);
+  }
+
+  // to make the Workload of the benchmark with the given name
+  static Workload workload(String name) {
+    switch (name) {
+      case "assignEdges":
+        return new AssignEdgesWorkload();
+      case "kruskal":
+        return new KruskalWorkload();
+      case "generate":
+        return new GenerateWorkload();
+      case "lightEmUp":
+        return new LightEmUpWorkload();
+      case "winCondition":
+        return new WinConditionWorkload();
+      case "makeScene":
+        return new MakeSceneWorkload();
+      default:
+        throw new IllegalArgumentException("No workload for the benchmark " + name);
+    }
+  }
+
+  // making every edge with a random weight and sorting them, in KruskalGenerator
+  @Benchmark
+  public Object assignEdges() {
+    return this.workload.run();
+  }
+
+  // kruskal's algorithm over sorted edges
+  @Benchmark
+  public Object kruskal() {
+    return this.workload.run();
+  }
+
+  // wiring up a board with BoruvkaGenerator, the way new games are
+  @Benchmark
+  public Object generate() {
+    return this.workload.run();
+  }
+
+  // powering a solved board from the station, every tile lit
+  @Benchmark
+  public Object lightEmUp() {
+    return this.workload.run();
+  }
+
+  // checking for a win
+  @Benchmark
+  public Object winCondition() {
+    return this.workload.run();
+  }
+
+  // turning a tile in view and drawing the frame after it
+  @Benchmark
+  public Object makeScene() {
+    return this.workload.run();
+  }
+}
@@ -0,0 +1,30 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+import lightemall.TileImageWorkload;
+import org.openjdk.jmh.annotations.*;
+
+// to time drawing tile images from scratch, which doesn't depend on the board,
+// going through every kind of tile in turn
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TileImageBenchmarks {
+  // draws the images
+  Workload workload;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.workload = new TileImageWorkload();
+    this.workload.setUp(0, "normal", BoardBenchmarks.SEED);
+  }
+
+  // drawing one tile image
+  @Benchmark
+  public Object tileImage() {
+    return this.workload.run();
+  }
+}
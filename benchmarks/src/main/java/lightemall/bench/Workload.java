@@ -0,0 +1,13 @@
+package lightemall.bench;
+
+// to represent one part of the game being timed. Most of the game is
+// package-private, so each part is set up and run by a public class in the
+// lightemall package, and the benchmarks only see it as a Workload
+public interface Workload {
+  // to get ready to time a square board of the given size and bias, made from
+  // the given seed, not timed
+  void setUp(int size, String bias, long seed);
+
+  // to do the timed work once, returning what it made so it can't be skipped
+  Object run();
+}